@@ -23,6 +23,9 @@ public final class Constants {
   private static RobotType robotType = RobotType.SIMBOT;
   public static final boolean tuningMode = false;
 
+  /** Auto to run in a headless simulation (from the environment), or null to run normally. */
+  public static final String headlessAuto = System.getenv("HEADLESS_AUTO");
+
   @SuppressWarnings("resource")
   public static RobotType getRobot() {
     if (!disableHAL && RobotBase.isReal() && robotType == RobotType.SIMBOT) {
@@ -40,6 +43,11 @@ public final class Constants {
     };
   }
 
+  /** Returns whether a headless simulation is running the auto specified by HEADLESS_AUTO. */
+  public static boolean isHeadless() {
+    return getMode() == Mode.SIM && headlessAuto != null;
+  }
+
   public enum Mode {
     /** Running on a real robot. */
     REAL,
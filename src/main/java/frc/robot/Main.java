@@ -29,6 +29,10 @@ public final class Main {
    * <p>If you change your main robot class, change the parameter type.
    */
   public static void main(String... args) {
+    if (MonteCarloSim.isRequested()) {
+      MonteCarloSim.run();
+      return;
+    }
     RobotBase.startRobot(Robot::new);
   }
 }
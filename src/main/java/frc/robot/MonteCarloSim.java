@@ -0,0 +1,228 @@
+// Copyright (c) 2025 FRC Team 1466
+// https://github.com/FRC1466
+
+package frc.robot;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import frc.robot.util.RunningStatistics;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs many headless simulations of one auto in parallel and reports the distribution of results.
+ * Each run is a separate JVM because the HAL simulation is global to a process. The first run is
+ * nominal, and the others enable seeded noise (see {@link frc.robot.util.SimNoise}) on module
+ * friction, gyro drift, and camera mounting. The ground truth end pose of each noisy run is
+ * compared to the nominal run.
+ *
+ * <p>Usage: MONTE_CARLO_RUNS=100 HEADLESS_AUTO="Example Auto" ./gradlew simulateJava
+ */
+public final class MonteCarloSim {
+  private static final String resultPrefix = "HEADLESS_RESULT";
+  private static final String runsVariable = "MONTE_CARLO_RUNS";
+  private static final String seedVariable = "MONTE_CARLO_SEED";
+
+  private MonteCarloSim() {}
+
+  /** Returns whether a batch of simulations was requested through the environment. */
+  public static boolean isRequested() {
+    return System.getenv(runsVariable) != null;
+  }
+
+  /** Formats the result of a headless simulation to be read back by the batch runner. */
+  static String formatResult(
+      boolean finished,
+      double autoTimeSecs,
+      RunningStatistics loopTime,
+      Pose2d pose,
+      Pose2d groundTruthPose) {
+    return String.format(
+        Locale.ROOT,
+        "%s %b %.6f %.6f %.6f %.6f %.6f %.6f %.6f %.6f %.6f",
+        resultPrefix,
+        finished,
+        autoTimeSecs,
+        loopTime.getMean(),
+        loopTime.getMax(),
+        pose.getX(),
+        pose.getY(),
+        pose.getRotation().getRadians(),
+        groundTruthPose.getX(),
+        groundTruthPose.getY(),
+        groundTruthPose.getRotation().getRadians());
+  }
+
+  private record Result(
+      boolean finished,
+      double autoTimeSecs,
+      double meanLoopMs,
+      double maxLoopMs,
+      Pose2d pose,
+      Pose2d groundTruthPose) {
+    static Result parse(String line) {
+      String[] fields = line.trim().split(" ");
+      return new Result(
+          Boolean.parseBoolean(fields[1]),
+          Double.parseDouble(fields[2]),
+          Double.parseDouble(fields[3]),
+          Double.parseDouble(fields[4]),
+          new Pose2d(
+              Double.parseDouble(fields[5]),
+              Double.parseDouble(fields[6]),
+              new Rotation2d(Double.parseDouble(fields[7]))),
+          new Pose2d(
+              Double.parseDouble(fields[8]),
+              Double.parseDouble(fields[9]),
+              new Rotation2d(Double.parseDouble(fields[10]))));
+    }
+  }
+
+  /** Runs the batch and prints the report. */
+  public static void run() {
+    String auto = System.getenv("HEADLESS_AUTO");
+    if (auto == null) {
+      System.err.println("HEADLESS_AUTO must be set to run a batch of simulations.");
+      System.exit(1);
+    }
+    int runs = Integer.parseInt(System.getenv(runsVariable));
+    String baseSeedString = System.getenv(seedVariable);
+    long baseSeed = baseSeedString == null ? 0 : Long.parseLong(baseSeedString);
+    int threads = Runtime.getRuntime().availableProcessors();
+    System.out.printf(
+        "*** Running %d simulations of \"%s\" on %d threads ***%n", runs + 1, auto, threads);
+
+    // Run simulations
+    long startNanos = System.nanoTime();
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    List<Future<Result>> futures = new ArrayList<>();
+    futures.add(executor.submit(() -> runSimulation(null)));
+    for (int i = 1; i <= runs; i++) {
+      long seed = baseSeed + i;
+      futures.add(executor.submit(() -> runSimulation(seed)));
+    }
+    List<Result> results = new ArrayList<>();
+    for (Future<Result> future : futures) {
+      try {
+        results.add(future.get());
+      } catch (InterruptedException | ExecutionException e) {
+        results.add(null);
+      }
+    }
+    executor.shutdown();
+    double wallSecs = (System.nanoTime() - startNanos) / 1.0e9;
+
+    // Aggregate results
+    Result nominal = results.get(0);
+    if (nominal == null) {
+      System.err.println("Nominal simulation failed, check that the auto exists.");
+      System.exit(1);
+    }
+    int failed = 0;
+    int timedOut = 0;
+    RunningStatistics autoTime = new RunningStatistics();
+    RunningStatistics meanLoopTime = new RunningStatistics();
+    RunningStatistics maxLoopTime = new RunningStatistics();
+    List<Double> endTranslationErrors = new ArrayList<>();
+    List<Double> endRotationErrors = new ArrayList<>();
+    List<Double> localizationTranslationErrors = new ArrayList<>();
+    List<Double> localizationRotationErrors = new ArrayList<>();
+    for (int i = 0; i < results.size(); i++) {
+      Result result = results.get(i);
+      if (result == null) {
+        failed++;
+        continue;
+      }
+      if (!result.finished()) {
+        timedOut++;
+      }
+      autoTime.add(result.autoTimeSecs());
+      meanLoopTime.add(result.meanLoopMs());
+      maxLoopTime.add(result.maxLoopMs());
+      Pose2d localizationError = result.pose().relativeTo(result.groundTruthPose());
+      localizationTranslationErrors.add(localizationError.getTranslation().getNorm());
+      localizationRotationErrors.add(Math.abs(localizationError.getRotation().getDegrees()));
+      if (i > 0) {
+        Pose2d endError = result.groundTruthPose().relativeTo(nominal.groundTruthPose());
+        endTranslationErrors.add(endError.getTranslation().getNorm());
+        endRotationErrors.add(Math.abs(endError.getRotation().getDegrees()));
+      }
+    }
+
+    // Print report
+    System.out.printf(
+        "*** Completed %d simulations in %.2f secs (%d failed, %d timed out) ***%n",
+        results.size(), wallSecs, failed, timedOut);
+    System.out.println("Nominal end pose: " + nominal.groundTruthPose());
+    printDistribution("End translation error (m)", endTranslationErrors);
+    printDistribution("End rotation error (deg)", endRotationErrors);
+    printDistribution("Localization translation error (m)", localizationTranslationErrors);
+    printDistribution("Localization rotation error (deg)", localizationRotationErrors);
+    System.out.printf(
+        "Auto time: mean %.2f secs, max %.2f secs%n", autoTime.getMean(), autoTime.getMax());
+    System.out.printf(
+        "Loop time: mean %.3f ms, max %.3f ms%n", meanLoopTime.getMean(), maxLoopTime.getMax());
+  }
+
+  /** Runs a headless simulation in a new JVM, returning null if no result was reported. */
+  private static Result runSimulation(Long seed) throws IOException, InterruptedException {
+    // Launch with the same JVM, arguments, and classpath as this process
+    List<String> command = new ArrayList<>();
+    command.add(ProcessHandle.current().info().command().orElse("java"));
+    command.addAll(ManagementFactory.getRuntimeMXBean().getInputArguments());
+    command.add("-cp");
+    command.add(System.getProperty("java.class.path"));
+    command.add(Main.class.getName());
+    ProcessBuilder builder = new ProcessBuilder(command).redirectErrorStream(true);
+    builder.environment().remove(runsVariable);
+    if (seed == null) {
+      builder.environment().remove("SIM_SEED");
+    } else {
+      builder.environment().put("SIM_SEED", Long.toString(seed));
+    }
+
+    // Read output until the process exits
+    Process process = builder.start();
+    Result result = null;
+    try (BufferedReader reader = process.inputReader()) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        if (line.startsWith(resultPrefix)) {
+          result = Result.parse(line);
+        }
+      }
+    }
+    process.waitFor();
+    return result;
+  }
+
+  private static void printDistribution(String name, List<Double> values) {
+    if (values.isEmpty()) {
+      System.out.printf("%s: no samples%n", name);
+      return;
+    }
+    double[] sorted = values.stream().mapToDouble(Double::doubleValue).toArray();
+    Arrays.sort(sorted);
+    RunningStatistics statistics = new RunningStatistics();
+    for (double value : sorted) {
+      statistics.add(value);
+    }
+    System.out.printf(
+        "%s: mean %.4f, std dev %.4f, p50 %.4f, p95 %.4f, max %.4f%n",
+        name,
+        statistics.getMean(),
+        statistics.getStdDev(),
+        sorted[(int) ((sorted.length - 1) * 0.5)],
+        sorted[(int) ((sorted.length - 1) * 0.95)],
+        statistics.getMax());
+  }
+}
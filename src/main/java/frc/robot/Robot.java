@@ -13,7 +13,6 @@
 
 package frc.robot;
 
-import com.ctre.phoenix6.swerve.SwerveModuleConstants;
 import com.ctre.phoenix6.swerve.SwerveModuleConstants.DriveMotorArrangement;
 import com.ctre.phoenix6.swerve.SwerveModuleConstants.SteerMotorArrangement;
 import edu.wpi.first.hal.AllianceStationID;
@@ -26,14 +25,16 @@ import edu.wpi.first.wpilibj.Threads;
 import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj.Watchdog;
 import edu.wpi.first.wpilibj.simulation.DriverStationSim;
+import edu.wpi.first.wpilibj.simulation.SimHooks;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.CommandScheduler;
 import frc.robot.Constants.RobotType;
-import frc.robot.generated.TunerConstants;
+import frc.robot.subsystems.drive.Drive;
 import frc.robot.util.DummyLogReceiver;
 import frc.robot.util.LoggedTracer;
 import frc.robot.util.NTClientLogger;
 import frc.robot.util.PhoenixUtil;
+import frc.robot.util.RunningStatistics;
 import frc.robot.util.SystemTimeValidReader;
 import java.lang.reflect.Field;
 import java.util.HashMap;
@@ -58,6 +59,8 @@ public class Robot extends LoggedRobot {
   private static final double lowBatteryVoltage = 11.8;
   private static final double lowBatteryDisabledTime = 1.5;
   private static final double lowBatteryMinCycleCount = 10;
+  private static final int headlessDisabledCycles = 10; // Let the auto selection propagate
+  private static final double headlessAutoTimeout = 15.0;
   private static int lowBatteryCycleCount = 0;
 
   private Command autonomousCommand;
@@ -67,6 +70,10 @@ public class Robot extends LoggedRobot {
   private final Timer canInitialErrorTimer = new Timer();
   private final Timer canErrorTimer = new Timer();
   private final Timer disabledTimer = new Timer();
+  private int headlessCycleCount = 0;
+  private long headlessLastLoopNanos = 0;
+  private long headlessStartNanos = 0;
+  private final RunningStatistics headlessLoopTime = new RunningStatistics();
 
   private final Alert canErrorAlert =
       new Alert("CAN errors detected, robot may not be controllable.", AlertType.kError);
@@ -108,8 +115,14 @@ public class Robot extends LoggedRobot {
         break;
 
       case SIM:
-        // Running a physics simulator, log to NT
-        Logger.addDataReceiver(new NT4Publisher());
+        if (Constants.isHeadless()) {
+          // Running a headless simulation, advance time as fast as possible
+          setUseTiming(false);
+          SimHooks.pauseTiming();
+        } else {
+          // Running a physics simulator, log to NT
+          Logger.addDataReceiver(new NT4Publisher());
+        }
         break;
 
       case REPLAY:
@@ -175,14 +188,7 @@ public class Robot extends LoggedRobot {
     }
 
     // Check for valid swerve config
-    var modules =
-        new SwerveModuleConstants[] {
-          TunerConstants.FrontLeft,
-          TunerConstants.FrontRight,
-          TunerConstants.BackLeft,
-          TunerConstants.BackRight
-        };
-    for (var constants : modules) {
+    for (var constants : Drive.MODULE_CONSTANTS) {
       if (constants.DriveMotorType != DriveMotorArrangement.TalonFX_Integrated
           || constants.SteerMotorType != SteerMotorArrangement.TalonFX_Integrated) {
         throw new RuntimeException(
@@ -193,6 +199,9 @@ public class Robot extends LoggedRobot {
     // Instantiate our RobotContainer. This will perform all our button bindings,
     // and put our autonomous chooser on the dashboard.
     robotContainer = new RobotContainer();
+    if (Constants.isHeadless()) {
+      robotContainer.selectAutonomous(Constants.headlessAuto);
+    }
 
     // Switch thread to high priority to improve loop timing
     Threads.setCurrentThreadPriority(true, 10);
@@ -324,5 +333,70 @@ public class Robot extends LoggedRobot {
 
   /** This function is called periodically whilst in simulation. */
   @Override
-  public void simulationPeriodic() {}
+  public void simulationPeriodic() {
+    if (Constants.isHeadless()) {
+      updateHeadless();
+      SimHooks.stepTiming(Constants.loopPeriodSecs);
+    }
+  }
+
+  /** Enables the selected auto after a short delay, then reports the results once it finishes. */
+  private void updateHeadless() {
+    // Measure loop time (no time is spent waiting between loops)
+    long nanos = System.nanoTime();
+    if (headlessCycleCount == 0) {
+      headlessStartNanos = nanos;
+    } else {
+      headlessLoopTime.add((nanos - headlessLastLoopNanos) / 1.0e6);
+    }
+    headlessLastLoopNanos = nanos;
+    headlessCycleCount++;
+
+    // Enable auto
+    if (headlessCycleCount == headlessDisabledCycles) {
+      DriverStationSim.setDsAttached(true);
+      DriverStationSim.setAutonomous(true);
+      DriverStationSim.setEnabled(true);
+      DriverStationSim.notifyNewData();
+      return;
+    }
+    if (!DriverStation.isAutonomousEnabled()) {
+      return;
+    }
+
+    // Report once the auto finishes or times out
+    double autoTime = Timer.getTimestamp() - autoStart;
+    boolean finished = autonomousCommand == null || !autonomousCommand.isScheduled();
+    if (finished || autoTime >= headlessAutoTimeout) {
+      if (autonomousCommand == null) {
+        System.out.printf("*** Headless auto \"%s\" not found ***%n", Constants.headlessAuto);
+      } else {
+        System.out.printf(
+            "*** Headless auto \"%s\" %s in %.2f sim secs (%.2f real secs) ***%n",
+            Constants.headlessAuto,
+            finished ? "finished" : "timed out",
+            autoTime,
+            (nanos - headlessStartNanos) / 1.0e9);
+      }
+      System.out.printf(
+          "Loop time: mean %.3f ms, std dev %.3f ms, max %.3f ms over %d cycles%n",
+          headlessLoopTime.getMean(),
+          headlessLoopTime.getStdDev(),
+          headlessLoopTime.getMax(),
+          headlessLoopTime.getCount());
+      System.out.println("Final pose: " + robotContainer.getPose());
+      System.out.println("Final ground truth pose: " + robotContainer.getGroundTruthPose());
+      if (autonomousCommand != null) {
+        System.out.println(
+            MonteCarloSim.formatResult(
+                finished,
+                autoTime,
+                headlessLoopTime,
+                robotContainer.getPose(),
+                robotContainer.getGroundTruthPose()));
+      }
+      suppressExitWarning(true);
+      endCompetition();
+    }
+  }
 }
@@ -33,18 +33,25 @@ import edu.wpi.first.wpilibj2.command.Commands;
 import edu.wpi.first.wpilibj2.command.button.CommandXboxController;
 import edu.wpi.first.wpilibj2.command.sysid.SysIdRoutine;
 import frc.robot.commands.DriveCommands;
-import frc.robot.generated.TunerConstants;
 import frc.robot.subsystems.drive.Drive;
+import frc.robot.subsystems.drive.DriveSimulation;
 import frc.robot.subsystems.drive.GyroIO;
+import frc.robot.subsystems.drive.GyroIOFused;
+import frc.robot.subsystems.drive.GyroIONavX;
 import frc.robot.subsystems.drive.GyroIOPigeon2;
+import frc.robot.subsystems.drive.GyroIOSim;
 import frc.robot.subsystems.drive.ModuleIO;
 import frc.robot.subsystems.drive.ModuleIOSim;
 import frc.robot.subsystems.drive.ModuleIOTalonFX;
+import frc.robot.subsystems.drive.SimCANChannel;
 import frc.robot.subsystems.vision.Vision;
-import frc.robot.subsystems.vision.VisionIO;
+import frc.robot.subsystems.vision.VisionConstants;
+import frc.robot.subsystems.vision.VisionIOAnalyticSim;
 import frc.robot.subsystems.vision.VisionIOPhotonVision;
 import frc.robot.subsystems.vision.VisionIOPhotonVisionSim;
+import frc.robot.subsystems.vision.VisionIOReplay;
 import frc.robot.util.AllianceFlipUtil;
+import java.util.Arrays;
 import org.littletonrobotics.junction.networktables.LoggedDashboardChooser;
 
 /**
@@ -57,6 +64,8 @@ public class RobotContainer {
   // Subsystems
   private final Vision vision;
   private final Drive drive;
+  private DriveSimulation driveSimulation = null;
+  private GyroIOSim gyroSim = null;
 
   // Controller
   private final CommandXboxController controller = new CommandXboxController(0);
@@ -74,32 +83,52 @@ public class RobotContainer {
         // Real robot, instantiate hardware IO implementations
         drive =
             new Drive(
-                new GyroIOPigeon2(),
-                new ModuleIOTalonFX(TunerConstants.FrontLeft),
-                new ModuleIOTalonFX(TunerConstants.FrontRight),
-                new ModuleIOTalonFX(TunerConstants.BackLeft),
-                new ModuleIOTalonFX(TunerConstants.BackRight));
+                Drive.USE_SECONDARY_GYRO
+                    ? new GyroIOFused(new GyroIOPigeon2(), new GyroIONavX())
+                    : new GyroIOPigeon2(),
+                Arrays.stream(Drive.MODULE_CONSTANTS)
+                    .map(ModuleIOTalonFX::new)
+                    .toArray(ModuleIO[]::new));
         vision =
             new Vision(
                 drive::addVisionMeasurement,
+                drive::samplePoseAt,
+                drive::getOdometryStdDev,
                 new VisionIOPhotonVision(camera0Name, robotToCamera0),
                 new VisionIOPhotonVision(camera0Name, robotToCamera1));
         break;
 
       case SIM:
         // Sim robot, instantiate physics sim IO implementations
-        drive =
-            new Drive(
-                new GyroIO() {},
-                new ModuleIOSim(TunerConstants.FrontLeft),
-                new ModuleIOSim(TunerConstants.FrontRight),
-                new ModuleIOSim(TunerConstants.BackLeft),
-                new ModuleIOSim(TunerConstants.BackRight));
-        vision =
-            new Vision(
-                drive::addVisionMeasurement,
-                new VisionIOPhotonVisionSim(camera0Name, robotToCamera0, drive::getPose),
-                new VisionIOPhotonVisionSim(camera1Name, robotToCamera1, drive::getPose));
+        ModuleIOSim[] moduleSims =
+            Arrays.stream(Drive.MODULE_CONSTANTS).map(ModuleIOSim::new).toArray(ModuleIOSim[]::new);
+        // CAN faults only apply to headless runs, so interactive sims drive cleanly
+        driveSimulation =
+            new DriveSimulation(
+                Constants.isHeadless() ? SimCANChannel.DEFAULT_CONFIG : SimCANChannel.Config.IDEAL,
+                moduleSims);
+        gyroSim = new GyroIOSim(driveSimulation);
+        drive = new Drive(gyroSim, moduleSims);
+        drive.addPoseResetConsumer(gyroSim::setGroundTruthPose);
+        if (VisionConstants.useAnalyticSim) {
+          vision =
+              new Vision(
+                  drive::addVisionMeasurement,
+                  drive::samplePoseAt,
+                  drive::getOdometryStdDev,
+                  new VisionIOAnalyticSim(robotToCamera0, gyroSim::getGroundTruthPose),
+                  new VisionIOAnalyticSim(robotToCamera1, gyroSim::getGroundTruthPose));
+        } else {
+          vision =
+              new Vision(
+                  drive::addVisionMeasurement,
+                  drive::samplePoseAt,
+                  drive::getOdometryStdDev,
+                  new VisionIOPhotonVisionSim(
+                      camera0Name, robotToCamera0, gyroSim::getGroundTruthPose),
+                  new VisionIOPhotonVisionSim(
+                      camera1Name, robotToCamera1, gyroSim::getGroundTruthPose));
+        }
         break;
 
       default:
@@ -107,14 +136,22 @@ public class RobotContainer {
         drive =
             new Drive(
                 new GyroIO() {},
-                new ModuleIO() {},
-                new ModuleIO() {},
-                new ModuleIO() {},
-                new ModuleIO() {});
-        vision = new Vision(drive::addVisionMeasurement, new VisionIO() {}, new VisionIO() {});
+                Arrays.stream(Drive.MODULE_CONSTANTS)
+                    .map((constants) -> new ModuleIO() {})
+                    .toArray(ModuleIO[]::new));
+        vision =
+            new Vision(
+                drive::addVisionMeasurement,
+                drive::samplePoseAt,
+                drive::getOdometryStdDev,
+                new VisionIOReplay(robotToCamera0),
+                new VisionIOReplay(robotToCamera1));
         break;
     }
 
+    // Accept the next vision pose after the odometry pose is reset (by autos or the driver)
+    drive.addPoseResetConsumer((pose) -> vision.resetGate());
+
     // Set up auto routines
     autoChooser = new LoggedDashboardChooser<>("Auto Choices", AutoBuilder.buildAutoChooser());
 
@@ -208,4 +245,19 @@ public class RobotContainer {
   public Command getAutonomousCommand() {
     return autoChooser.get();
   }
+
+  /** Selects an option from the auto chooser by name, as a dashboard would. */
+  public void selectAutonomous(String name) {
+    SmartDashboard.putString("Auto Choices/selected", name);
+  }
+
+  /** Returns the current odometry pose. */
+  public Pose2d getPose() {
+    return drive.getPose();
+  }
+
+  /** Returns the simulated robot pose, or the odometry pose if not running a physics sim. */
+  public Pose2d getGroundTruthPose() {
+    return gyroSim != null ? gyroSim.getGroundTruthPose() : drive.getPose();
+  }
 }
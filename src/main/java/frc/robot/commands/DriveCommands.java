@@ -267,8 +267,9 @@ public class DriveCommands {
                     () -> {
                       double[] positions = drive.getWheelRadiusCharacterizationPositions();
                       double wheelDelta = 0.0;
-                      for (int i = 0; i < 4; i++) {
-                        wheelDelta += Math.abs(positions[i] - state.positions[i]) / 4.0;
+                      for (int i = 0; i < positions.length; i++) {
+                        wheelDelta +=
+                            Math.abs(positions[i] - state.positions[i]) / positions.length;
                       }
                       double wheelRadius = (state.gyroDelta * Drive.DRIVE_BASE_RADIUS) / wheelDelta;
 
@@ -289,7 +290,7 @@ public class DriveCommands {
   }
 
   private static class WheelRadiusCharacterizationState {
-    double[] positions = new double[4];
+    double[] positions = new double[0];
     Rotation2d lastAngle = new Rotation2d();
     double gyroDelta = 0.0;
   }
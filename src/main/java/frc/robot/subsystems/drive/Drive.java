@@ -16,6 +16,9 @@ package frc.robot.subsystems.drive;
 import static edu.wpi.first.units.Units.*;
 
 import com.ctre.phoenix6.CANBus;
+import com.ctre.phoenix6.configs.CANcoderConfiguration;
+import com.ctre.phoenix6.configs.TalonFXConfiguration;
+import com.ctre.phoenix6.swerve.SwerveModuleConstants;
 import com.pathplanner.lib.auto.AutoBuilder;
 import com.pathplanner.lib.config.ModuleConfig;
 import com.pathplanner.lib.config.PIDConstants;
@@ -27,6 +30,7 @@ import edu.wpi.first.hal.FRCNetComm.tInstances;
 import edu.wpi.first.hal.FRCNetComm.tResourceType;
 import edu.wpi.first.hal.HAL;
 import edu.wpi.first.math.Matrix;
+import edu.wpi.first.math.VecBuilder;
 import edu.wpi.first.math.estimator.SwerveDrivePoseEstimator;
 import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Rotation2d;
@@ -50,23 +54,44 @@ import frc.robot.Constants;
 import frc.robot.Constants.Mode;
 import frc.robot.generated.TunerConstants;
 import frc.robot.util.LocalADStarAK;
+import java.util.Arrays;
+import java.util.Optional;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 import org.littletonrobotics.junction.AutoLogOutput;
 import org.littletonrobotics.junction.Logger;
 
 public class Drive extends SubsystemBase {
+  // All modules on the drivetrain; the length of this array sets the module count
+  // (Kept here rather than in TunerConstants, which is regenerated by Tuner X)
+  @SuppressWarnings("unchecked")
+  public static final SwerveModuleConstants<
+          TalonFXConfiguration, TalonFXConfiguration, CANcoderConfiguration>[]
+      MODULE_CONSTANTS =
+          new SwerveModuleConstants[] {
+            TunerConstants.FrontLeft,
+            TunerConstants.FrontRight,
+            TunerConstants.BackLeft,
+            TunerConstants.BackRight
+          };
+
   // TunerConstants doesn't include these constants, so they are declared locally
   static final double ODOMETRY_FREQUENCY =
       new CANBus(TunerConstants.DrivetrainConstants.CANBusName).isNetworkFD() ? 250.0 : 100.0;
+  static final boolean LATENCY_COMPENSATION =
+      false; // Extrapolate positions to a common instant using their velocity signals
+  public static final boolean USE_SECONDARY_GYRO =
+      false; // Fuse a NavX with the Pigeon 2 for redundancy (requires a NavX on the MXP port)
   public static final double DRIVE_BASE_RADIUS =
-      Math.max(
-          Math.max(
-              Math.hypot(TunerConstants.FrontLeft.LocationX, TunerConstants.FrontLeft.LocationY),
-              Math.hypot(TunerConstants.FrontRight.LocationX, TunerConstants.FrontRight.LocationY)),
-          Math.max(
-              Math.hypot(TunerConstants.BackLeft.LocationX, TunerConstants.BackLeft.LocationY),
-              Math.hypot(TunerConstants.BackRight.LocationX, TunerConstants.BackRight.LocationY)));
+      Arrays.stream(MODULE_CONSTANTS)
+          .mapToDouble((module) -> Math.hypot(module.LocationX, module.LocationY))
+          .max()
+          .orElse(0.0);
+  public static final Matrix<N3, N1> ODOMETRY_STD_DEVS =
+      VecBuilder.fill(0.1, 0.1, 0.1); // Pose estimator state std devs
+  public static final Matrix<N3, N1> ODOMETRY_STD_DEV_GROWTH =
+      VecBuilder.fill(0.1, 0.1, 0.05); // Per sqrt(sec) without a vision correction
 
   // PathPlanner config constants
   private static final double ROBOT_MASS_KG = 74.088;
@@ -77,46 +102,71 @@ public class Drive extends SubsystemBase {
           ROBOT_MASS_KG,
           ROBOT_MOI,
           new ModuleConfig(
-              TunerConstants.FrontLeft.WheelRadius,
+              MODULE_CONSTANTS[0].WheelRadius,
               TunerConstants.kSpeedAt12Volts.in(MetersPerSecond),
               WHEEL_COF,
               DCMotor.getKrakenX60Foc(1)
-                  .withReduction(TunerConstants.FrontLeft.DriveMotorGearRatio),
-              TunerConstants.FrontLeft.SlipCurrent,
+                  .withReduction(MODULE_CONSTANTS[0].DriveMotorGearRatio),
+              MODULE_CONSTANTS[0].SlipCurrent,
               1),
           getModuleTranslations());
 
+  private static final SwerveModuleState[] EMPTY_STATES = new SwerveModuleState[] {};
+
   static final Lock odometryLock = new ReentrantLock();
   private final GyroIO gyroIO;
   private final GyroIOInputsAutoLogged gyroInputs = new GyroIOInputsAutoLogged();
-  private final Module[] modules = new Module[4]; // FL, FR, BL, BR
+  private final Module[] modules; // Same order as MODULE_CONSTANTS
+  private final ModuleBank moduleBank;
   private final SysIdRoutine sysId;
   private final Alert gyroDisconnectedAlert =
       new Alert("Disconnected gyro, using kinematics as fallback.", AlertType.kError);
 
-  private SwerveDriveKinematics kinematics = new SwerveDriveKinematics(getModuleTranslations());
+  private final Translation2d[] moduleTranslations = getModuleTranslations();
+  private final Rotation2d[] moduleXHeadings;
+  private SwerveDriveKinematics kinematics = new SwerveDriveKinematics(moduleTranslations);
   private Rotation2d rawGyroRotation = new Rotation2d();
-  private SwerveModulePosition[] lastModulePositions = // For delta tracking
-      new SwerveModulePosition[] {
-        new SwerveModulePosition(),
-        new SwerveModulePosition(),
-        new SwerveModulePosition(),
-        new SwerveModulePosition()
-      };
-  private SwerveDrivePoseEstimator poseEstimator =
-      new SwerveDrivePoseEstimator(kinematics, rawGyroRotation, lastModulePositions, new Pose2d());
-
-  public Drive(
-      GyroIO gyroIO,
-      ModuleIO flModuleIO,
-      ModuleIO frModuleIO,
-      ModuleIO blModuleIO,
-      ModuleIO brModuleIO) {
+
+  // Odometry buffers, sized once for the module count and reused every sample
+  private final SwerveModulePosition[] odometryPositions;
+  private final SwerveModulePosition[] odometryDeltas;
+  private final SwerveModulePosition[] lastModulePositions; // For delta tracking
+  private SwerveDrivePoseEstimator poseEstimator;
+  private int gyroSampleCursor = 0;
+  private Consumer<Pose2d> poseResetConsumer = (pose) -> {};
+
+  public Drive(GyroIO gyroIO, ModuleIO... moduleIOs) {
+    if (moduleIOs.length != MODULE_CONSTANTS.length) {
+      throw new IllegalArgumentException(
+          "Expected "
+              + MODULE_CONSTANTS.length
+              + " module IO implementations, got "
+              + moduleIOs.length
+              + ".");
+    }
     this.gyroIO = gyroIO;
-    modules[0] = new Module(flModuleIO, 0, TunerConstants.FrontLeft);
-    modules[1] = new Module(frModuleIO, 1, TunerConstants.FrontRight);
-    modules[2] = new Module(blModuleIO, 2, TunerConstants.BackLeft);
-    modules[3] = new Module(brModuleIO, 3, TunerConstants.BackRight);
+    int moduleCount = moduleIOs.length;
+    modules = new Module[moduleCount];
+    moduleXHeadings = new Rotation2d[moduleCount];
+    odometryPositions = new SwerveModulePosition[moduleCount];
+    odometryDeltas = new SwerveModulePosition[moduleCount];
+    lastModulePositions = new SwerveModulePosition[moduleCount];
+    for (int i = 0; i < moduleCount; i++) {
+      modules[i] = new Module(moduleIOs[i], i, MODULE_CONSTANTS[i]);
+      moduleXHeadings[i] = moduleTranslations[i].getAngle();
+      odometryPositions[i] = new SwerveModulePosition();
+      odometryDeltas[i] = new SwerveModulePosition();
+      lastModulePositions[i] = new SwerveModulePosition();
+    }
+    moduleBank = new ModuleBank(modules);
+    poseEstimator =
+        new SwerveDrivePoseEstimator(
+            kinematics,
+            rawGyroRotation,
+            lastModulePositions,
+            new Pose2d(),
+            ODOMETRY_STD_DEVS,
+            VecBuilder.fill(0.9, 0.9, 0.9));
 
     // Usage reporting for swerve template
     HAL.report(tResourceType.kResourceType_RobotDrive, tInstances.kRobotDriveSwerve_AdvantageKit);
@@ -160,61 +210,91 @@ public class Drive extends SubsystemBase {
 
   @Override
   public void periodic() {
+    long periodicStartNanos = System.nanoTime(); // FPGA time is paused during headless sims
     odometryLock.lock(); // Prevents odometry updates while reading data
     gyroIO.updateInputs(gyroInputs);
     Logger.processInputs("Drive/Gyro", gyroInputs);
-    for (var module : modules) {
-      module.periodic();
-    }
+    moduleBank.periodic();
     odometryLock.unlock();
 
     // Stop moving when disabled
     if (DriverStation.isDisabled()) {
-      for (var module : modules) {
-        module.stop();
-      }
+      moduleBank.stop();
     }
 
     // Log empty setpoint states when disabled
     if (DriverStation.isDisabled()) {
-      Logger.recordOutput("SwerveStates/Setpoints", new SwerveModuleState[] {});
-      Logger.recordOutput("SwerveStates/SetpointsOptimized", new SwerveModuleState[] {});
+      Logger.recordOutput("SwerveStates/Setpoints", EMPTY_STATES);
+      Logger.recordOutput("SwerveStates/SetpointsOptimized", EMPTY_STATES);
     }
 
     // Update odometry
     double[] sampleTimestamps =
         modules[0].getOdometryTimestamps(); // All signals are sampled together
     int sampleCount = sampleTimestamps.length;
+    for (var module : modules) {
+      // Guard against mismatched sample counts, such as a queue overflowing on one module
+      sampleCount = Math.min(sampleCount, module.getOdometryTimestamps().length);
+    }
+    gyroSampleCursor = 0;
     for (int i = 0; i < sampleCount; i++) {
       // Read wheel positions and deltas from each module
-      SwerveModulePosition[] modulePositions = new SwerveModulePosition[4];
-      SwerveModulePosition[] moduleDeltas = new SwerveModulePosition[4];
-      for (int moduleIndex = 0; moduleIndex < 4; moduleIndex++) {
-        modulePositions[moduleIndex] = modules[moduleIndex].getOdometryPositions()[i];
-        moduleDeltas[moduleIndex] =
-            new SwerveModulePosition(
-                modulePositions[moduleIndex].distanceMeters
-                    - lastModulePositions[moduleIndex].distanceMeters,
-                modulePositions[moduleIndex].angle);
-        lastModulePositions[moduleIndex] = modulePositions[moduleIndex];
+      for (int moduleIndex = 0; moduleIndex < modules.length; moduleIndex++) {
+        double positionMeters = modules[moduleIndex].getOdometryPositionMeters(i);
+        Rotation2d angle = modules[moduleIndex].getOdometryAngle(i);
+        odometryPositions[moduleIndex].distanceMeters = positionMeters;
+        odometryPositions[moduleIndex].angle = angle;
+        odometryDeltas[moduleIndex].distanceMeters =
+            positionMeters - lastModulePositions[moduleIndex].distanceMeters;
+        odometryDeltas[moduleIndex].angle = angle;
+        lastModulePositions[moduleIndex].distanceMeters = positionMeters;
+        lastModulePositions[moduleIndex].angle = angle;
       }
 
       // Update gyro angle
       if (gyroInputs.connected) {
-        // Use the real gyro angle
-        rawGyroRotation = gyroInputs.odometryYawPositions[i];
+        // Use the real gyro angle at the module sample time
+        rawGyroRotation = getOdometryGyroYaw(sampleTimestamps[i]);
       } else {
         // Use the angle delta from the kinematics and module deltas
-        Twist2d twist = kinematics.toTwist2d(moduleDeltas);
+        Twist2d twist = kinematics.toTwist2d(odometryDeltas);
         rawGyroRotation = rawGyroRotation.plus(new Rotation2d(twist.dtheta));
       }
 
       // Apply update
-      poseEstimator.updateWithTime(sampleTimestamps[i], rawGyroRotation, modulePositions);
+      poseEstimator.updateWithTime(sampleTimestamps[i], rawGyroRotation, odometryPositions);
     }
 
     // Update gyro alert
     gyroDisconnectedAlert.set(!gyroInputs.connected && Constants.getMode() != Mode.SIM);
+
+    // Record loop cost for comparing drivetrain changes
+    Logger.recordOutput("Drive/PeriodicMS", (System.nanoTime() - periodicStartNanos) / 1.0e6);
+  }
+
+  /**
+   * Returns the gyro yaw at the specified timestamp, interpolating between this cycle's gyro
+   * samples. Gyro samples are not required to share timestamps with the module samples. Timestamps
+   * must be requested in increasing order within a cycle.
+   */
+  private Rotation2d getOdometryGyroYaw(double timestamp) {
+    double[] timestamps = gyroInputs.odometryYawTimestamps;
+    Rotation2d[] yawPositions = gyroInputs.odometryYawPositions;
+    int count = Math.min(timestamps.length, yawPositions.length);
+    if (count == 0) {
+      return gyroInputs.yawPosition;
+    }
+    while (gyroSampleCursor < count - 1 && timestamps[gyroSampleCursor + 1] <= timestamp) {
+      gyroSampleCursor++;
+    }
+    Rotation2d before = yawPositions[gyroSampleCursor];
+    if (gyroSampleCursor == count - 1 || timestamp <= timestamps[gyroSampleCursor]) {
+      return before;
+    }
+    double t =
+        (timestamp - timestamps[gyroSampleCursor])
+            / (timestamps[gyroSampleCursor + 1] - timestamps[gyroSampleCursor]);
+    return before.interpolate(yawPositions[gyroSampleCursor + 1], t);
   }
 
   /**
@@ -233,19 +313,15 @@ public class Drive extends SubsystemBase {
     Logger.recordOutput("SwerveChassisSpeeds/Setpoints", discreteSpeeds);
 
     // Send setpoints to modules
-    for (int i = 0; i < 4; i++) {
-      modules[i].runSetpoint(setpointStates[i]);
-    }
+    moduleBank.runSetpoints(setpointStates);
 
-    // Log optimized setpoints (runSetpoint mutates each state)
+    // Log optimized setpoints (runSetpoints mutates each state)
     Logger.recordOutput("SwerveStates/SetpointsOptimized", setpointStates);
   }
 
   /** Runs the drive in a straight line with the specified drive output. */
   public void runCharacterization(double output) {
-    for (int i = 0; i < 4; i++) {
-      modules[i].runCharacterization(output);
-    }
+    moduleBank.runCharacterization(output);
   }
 
   /** Stops the drive. */
@@ -258,11 +334,7 @@ public class Drive extends SubsystemBase {
    * return to their normal orientations the next time a nonzero velocity is requested.
    */
   public void stopWithX() {
-    Rotation2d[] headings = new Rotation2d[4];
-    for (int i = 0; i < 4; i++) {
-      headings[i] = getModuleTranslations()[i].getAngle();
-    }
-    kinematics.resetHeadings(headings);
+    kinematics.resetHeadings(moduleXHeadings);
     stop();
   }
 
@@ -278,23 +350,21 @@ public class Drive extends SubsystemBase {
     return run(() -> runCharacterization(0.0)).withTimeout(1.0).andThen(sysId.dynamic(direction));
   }
 
-  /** Returns the module states (turn angles and drive velocities) for all of the modules. */
+  /**
+   * Returns the module states (turn angles and drive velocities) for all of the modules. The array
+   * and states are reused every cycle.
+   */
   @AutoLogOutput(key = "SwerveStates/Measured")
   private SwerveModuleState[] getModuleStates() {
-    SwerveModuleState[] states = new SwerveModuleState[4];
-    for (int i = 0; i < 4; i++) {
-      states[i] = modules[i].getState();
-    }
-    return states;
+    return moduleBank.getStates();
   }
 
-  /** Returns the module positions (turn angles and drive positions) for all of the modules. */
+  /**
+   * Returns the module positions (turn angles and drive positions) for all of the modules. The
+   * array and positions are reused every cycle.
+   */
   private SwerveModulePosition[] getModulePositions() {
-    SwerveModulePosition[] states = new SwerveModulePosition[4];
-    for (int i = 0; i < 4; i++) {
-      states[i] = modules[i].getPosition();
-    }
-    return states;
+    return moduleBank.getPositions();
   }
 
   /** Returns the measured chassis speeds of the robot. */
@@ -305,20 +375,12 @@ public class Drive extends SubsystemBase {
 
   /** Returns the position of each module in radians. */
   public double[] getWheelRadiusCharacterizationPositions() {
-    double[] values = new double[4];
-    for (int i = 0; i < 4; i++) {
-      values[i] = modules[i].getWheelRadiusCharacterizationPosition();
-    }
-    return values;
+    return moduleBank.getDrivePositionsRad();
   }
 
   /** Returns the average velocity of the modules in rotations/sec (Phoenix native units). */
   public double getFFCharacterizationVelocity() {
-    double output = 0.0;
-    for (int i = 0; i < 4; i++) {
-      output += modules[i].getFFCharacterizationVelocity() / 4.0;
-    }
-    return output;
+    return moduleBank.getAverageDriveVelocityRotPerSec();
   }
 
   /** Returns the current odometry pose. */
@@ -335,6 +397,20 @@ public class Drive extends SubsystemBase {
   /** Resets the current odometry pose. */
   public void setPose(Pose2d pose) {
     poseEstimator.resetPosition(rawGyroRotation, getModulePositions(), pose);
+    poseResetConsumer.accept(pose);
+  }
+
+  /**
+   * Adds a consumer to call when the odometry pose is reset, such as to move a simulated robot.
+   * Consumers are called in the order they were added.
+   */
+  public void addPoseResetConsumer(Consumer<Pose2d> consumer) {
+    poseResetConsumer = poseResetConsumer.andThen(consumer);
+  }
+
+  /** Returns the estimated pose at a past timestamp, or empty if there is no pose history. */
+  public Optional<Pose2d> samplePoseAt(double timestampSeconds) {
+    return poseEstimator.sampleAt(timestampSeconds);
   }
 
   /** Adds a new timestamped vision measurement. */
@@ -346,6 +422,17 @@ public class Drive extends SubsystemBase {
         visionRobotPoseMeters, timestampSeconds, visionMeasurementStdDevs);
   }
 
+  /**
+   * Returns the standard deviation of the odometry pose along one axis (0 = x, 1 = y, 2 = theta)
+   * after a time without vision corrections. The variance grows linearly with time, like a random
+   * walk, so vision observations that disagree with odometry are trusted again as it drifts.
+   */
+  public double getOdometryStdDev(int axis, double secsSinceCorrection) {
+    double baseline = ODOMETRY_STD_DEVS.get(axis, 0);
+    double growth = ODOMETRY_STD_DEV_GROWTH.get(axis, 0);
+    return Math.sqrt(baseline * baseline + growth * growth * Math.max(0.0, secsSinceCorrection));
+  }
+
   /** Returns the maximum linear speed in meters per sec. */
   public double getMaxLinearSpeedMetersPerSec() {
     return TunerConstants.kSpeedAt12Volts.in(MetersPerSecond);
@@ -358,11 +445,12 @@ public class Drive extends SubsystemBase {
 
   /** Returns an array of module translations. */
   public static Translation2d[] getModuleTranslations() {
-    return new Translation2d[] {
-      new Translation2d(TunerConstants.FrontLeft.LocationX, TunerConstants.FrontLeft.LocationY),
-      new Translation2d(TunerConstants.FrontRight.LocationX, TunerConstants.FrontRight.LocationY),
-      new Translation2d(TunerConstants.BackLeft.LocationX, TunerConstants.BackLeft.LocationY),
-      new Translation2d(TunerConstants.BackRight.LocationX, TunerConstants.BackRight.LocationY)
-    };
+    Translation2d[] translations = new Translation2d[MODULE_CONSTANTS.length];
+    for (int i = 0; i < translations.length; i++) {
+      translations[i] =
+          new Translation2d(
+              MODULE_CONSTANTS[i].LocationX, MODULE_CONSTANTS[i].LocationY);
+    }
+    return translations;
   }
 }
@@ -0,0 +1,178 @@
+// Copyright (c) 2025 FRC Team 1466
+// https://github.com/FRC1466
+
+package frc.robot.subsystems.drive;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.littletonrobotics.junction.Logger;
+
+/**
+ * Steps the drivetrain sims in lock-step on a worker pool. All modules run each physics sub-step in
+ * parallel, and every module finishes a sub-step before any starts the next. Modules only touch
+ * their own state while stepping, and anything coupling them (such as the gyro sim) runs on the
+ * calling thread between sub-steps in a fixed order, so the results are identical to stepping
+ * serially. With a single module or processor, modules are stepped on the calling thread.
+ *
+ * <p>After each sub-step, the samples of every device are sent together over one {@link
+ * SimCANChannel}, so the whole drivetrain shares one sample schedule like the real odometry thread.
+ */
+public class DriveSimulation {
+  private final ModuleIOSim[] modules;
+  private final ExecutorService executor;
+  private final List<Callable<Void>> stepTasks = new ArrayList<>();
+  private volatile int substep = 0; // Published to the workers by invokeAll
+  private final SimCANChannel canChannel;
+  private final double[] canSample;
+  private final int gyroChannelOffset;
+  private GyroIOSim gyro = null;
+  private long lastUpdateTimestamp = -1;
+  private double loopEndTime = 0.0;
+  private double[][] samples;
+
+  /**
+   * Creates a new DriveSimulation.
+   *
+   * @param canConfig The CAN timing and faults applied to every device.
+   * @param modules The module sims to step.
+   */
+  public DriveSimulation(SimCANChannel.Config canConfig, ModuleIOSim... modules) {
+    this.modules = modules;
+
+    // Assign each device its channels, with the gyro after the modules
+    for (int i = 0; i < modules.length; i++) {
+      modules[i].setSimulation(this, i * ModuleIOSim.CAN_CHANNEL_COUNT);
+    }
+    gyroChannelOffset = modules.length * ModuleIOSim.CAN_CHANNEL_COUNT;
+    int channelCount = gyroChannelOffset + GyroIOSim.CAN_CHANNEL_COUNT;
+    canChannel = new SimCANChannel(channelCount, canConfig);
+    canSample = new double[channelCount];
+    samples = new double[channelCount + 1][0];
+
+    // Create one task per module, since they are the same every sub-step
+    int threadCount = Math.min(modules.length, Runtime.getRuntime().availableProcessors());
+    if (threadCount > 1) {
+      executor =
+          Executors.newFixedThreadPool(
+              threadCount,
+              (runnable) -> {
+                Thread thread = new Thread(runnable, "DriveSimulation");
+                thread.setDaemon(true);
+                return thread;
+              });
+      for (ModuleIOSim module : modules) {
+        stepTasks.add(
+            () -> {
+              module.step(substep);
+              return null;
+            });
+      }
+    } else {
+      executor = null;
+    }
+  }
+
+  /** Registers the gyro sim, which is stepped after the modules at each sub-step. */
+  void setGyro(GyroIOSim gyro) {
+    this.gyro = gyro;
+  }
+
+  /** Returns the simulated modules. */
+  ModuleIOSim[] getModules() {
+    return modules;
+  }
+
+  /** Returns the index of the first CAN channel for the gyro. */
+  int getGyroChannelOffset() {
+    return gyroChannelOffset;
+  }
+
+  /** Advances all devices by one loop, unless they have already been advanced this loop. */
+  void update() {
+    long timestamp = Logger.getTimestamp();
+    if (timestamp == lastUpdateTimestamp) {
+      return;
+    }
+    lastUpdateTimestamp = timestamp;
+    loopEndTime = timestamp / 1.0e6;
+
+    long startNanos = System.nanoTime(); // FPGA time is paused during headless sims
+    for (int i = 0; i < ModuleIOSim.SUBSTEPS; i++) {
+      if (!stepModules(i)) {
+        return;
+      }
+      if (gyro != null) {
+        gyro.step(i);
+      }
+
+      // Send the samples of all devices together
+      for (int m = 0; m < modules.length; m++) {
+        modules[m].writeCANSample(i, canSample, m * ModuleIOSim.CAN_CHANNEL_COUNT);
+      }
+      if (gyro != null) {
+        gyro.writeCANSample(canSample, gyroChannelOffset);
+      }
+      canChannel.submit(getSampleTimestamp(i), canSample);
+    }
+    samples = canChannel.receive(loopEndTime);
+    Logger.recordOutput("Drive/SimUpdateMS", (System.nanoTime() - startNanos) / 1.0e6);
+  }
+
+  /**
+   * Advances every module by one sub-step, waiting for all of them to finish. Returns false if the
+   * calling thread was interrupted.
+   */
+  private boolean stepModules(int i) {
+    if (executor == null) {
+      for (ModuleIOSim module : modules) {
+        module.step(i);
+      }
+      return true;
+    }
+    substep = i;
+    try {
+      for (Future<Void> future : executor.invokeAll(stepTasks)) {
+        future.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    } catch (ExecutionException e) {
+      throw new RuntimeException("Drive simulation failed", e.getCause());
+    }
+    return true;
+  }
+
+  /** Returns the timestamp in seconds of a sub-step within the current loop. */
+  double getSampleTimestamp(int substep) {
+    return loopEndTime - (ModuleIOSim.SUBSTEPS - 1 - substep) * ModuleIOSim.SUBSTEP_PERIOD_SECS;
+  }
+
+  /**
+   * Returns the samples received this loop, with the timestamps at index 0 followed by one array
+   * for each CAN channel. Every device receives the same samples.
+   */
+  double[][] getReceivedSamples() {
+    return samples;
+  }
+
+  /** Returns the most recently received value for a CAN channel. */
+  double getReceivedValue(int channel) {
+    return canChannel.getValue(channel);
+  }
+
+  /** Returns the latency of the most recently received sample in seconds. */
+  double getCANLatencySecs() {
+    return canChannel.getLatencySecs();
+  }
+
+  /** Returns whether a sample has been received recently. */
+  boolean isCANConnected() {
+    return canChannel.isConnected(loopEndTime);
+  }
+}
@@ -22,8 +22,28 @@ public interface GyroIO {
     public boolean connected = false;
     public Rotation2d yawPosition = new Rotation2d();
     public double yawVelocityRadPerSec = 0.0;
+    public double pitchPositionRad = 0.0;
+    public double rollPositionRad = 0.0;
+    // Robot-relative accelerometer readings including gravity (Z reads 1 G when level)
+    public double accelerationXGs = 0.0;
+    public double accelerationYGs = 0.0;
+    public double accelerationZGs = 0.0;
+
     public double[] odometryYawTimestamps = new double[] {};
     public Rotation2d[] odometryYawPositions = new Rotation2d[] {};
+    public double[] odometryYawVelocitiesRadPerSec = new double[] {};
+    public double[] odometryPitchPositionsRad = new double[] {};
+    public double[] odometryRollPositionsRad = new double[] {};
+    public double[] odometryAccelerationsXGs = new double[] {};
+    public double[] odometryAccelerationsYGs = new double[] {};
+    public double[] odometryAccelerationsZGs = new double[] {};
+
+    // Redundant gyro fusion state, only set by GyroIOFused
+    public boolean primaryConnected = false;
+    public boolean secondaryConnected = false;
+    public double secondaryBiasRad = 0.0;
+    public double secondaryDriftRadPerSec = 0.0;
+    public long rejectedSampleCount = 0;
   }
 
   public default void updateInputs(GyroIOInputs inputs) {}
@@ -0,0 +1,259 @@
+// Copyright (c) 2025 FRC Team 1466
+// https://github.com/FRC1466
+
+package frc.robot.subsystems.drive;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.util.Units;
+import java.util.Arrays;
+
+/**
+ * IO implementation that fuses two gyros, such as a Pigeon 2 and a NavX. The yaw bias of the
+ * secondary gyro relative to the primary and its drift rate are tracked continuously, samples
+ * where the gyros disagree are rejected, and the output fails over to whichever gyro is still
+ * connected. When a gyro reconnects (possibly after rebooting with its yaw reset), it is re-seeded
+ * against the fused estimate before it is trusted again.
+ */
+public class GyroIOFused implements GyroIO {
+  private static final double SECONDARY_WEIGHT = 0.5;
+  private static final double BIAS_GAIN = 0.01; // Fraction of the residual applied per sample
+  private static final double DRIFT_GAIN = BIAS_GAIN * BIAS_GAIN / (2.0 - BIAS_GAIN);
+  private static final double OUTLIER_THRESHOLD = Units.degreesToRadians(5.0);
+  private static final int MAX_CONSECUTIVE_OUTLIERS = 50; // Re-seed bias after this many
+
+  private final GyroIO primary;
+  private final GyroIO secondary;
+  private final GyroIOInputs primaryInputs = new GyroIOInputs();
+  private final GyroIOInputs secondaryInputs = new GyroIOInputs();
+
+  private boolean wasPrimaryConnected = false;
+  private boolean wasSecondaryConnected = false;
+  private boolean hasOutput = false;
+  private double lastYawRad = 0.0; // Most recent fused yaw
+  private double primaryOffsetRad = 0.0; // Added to primary yaw after a re-seed
+
+  private boolean biasInitialized = false;
+  private double biasRad = 0.0; // Secondary yaw minus primary yaw at the bias timestamp
+  private double driftRadPerSec = 0.0; // Rate of change of the bias
+  private double biasTimestamp = Double.NaN;
+  private int consecutiveOutliers = 0;
+  private long rejectedSampleCount = 0;
+  private int secondaryCursor = 0;
+
+  // Output sample arrays, indexed by sample count and reused across cycles
+  private Rotation2d[][] yawPositionBuffers = new Rotation2d[0][];
+
+  /**
+   * Creates a new GyroIOFused.
+   *
+   * @param primary The gyro to follow while it is connected.
+   * @param secondary The gyro to fuse with the primary and fail over to.
+   */
+  public GyroIOFused(GyroIO primary, GyroIO secondary) {
+    this.primary = primary;
+    this.secondary = secondary;
+  }
+
+  @Override
+  public void updateInputs(GyroIOInputs inputs) {
+    primary.updateInputs(primaryInputs);
+    secondary.updateInputs(secondaryInputs);
+    boolean primaryConnected = primaryInputs.connected;
+    boolean secondaryConnected = secondaryInputs.connected;
+
+    // A reconnected secondary needs a new bias, since its yaw may have been reset
+    if (secondaryConnected && !wasSecondaryConnected) {
+      biasInitialized = false;
+    }
+
+    // A reconnected primary is re-seeded against the fused estimate before it is trusted
+    if (primaryConnected && !wasPrimaryConnected && hasOutput) {
+      double estimate = lastYawRad;
+      if (secondaryConnected && biasInitialized) {
+        estimate = secondaryInputs.yawPosition.getRadians() - biasAt(biasTimestamp);
+      }
+      primaryOffsetRad = MathUtil.angleModulus(estimate - primaryInputs.yawPosition.getRadians());
+    }
+    wasPrimaryConnected = primaryConnected;
+    wasSecondaryConnected = secondaryConnected;
+
+    // Rates, tilt, and acceleration come from the active gyro
+    GyroIOInputs source = primaryConnected ? primaryInputs : secondaryInputs;
+    inputs.connected = primaryConnected || secondaryConnected;
+    inputs.yawVelocityRadPerSec = source.yawVelocityRadPerSec;
+    inputs.pitchPositionRad = source.pitchPositionRad;
+    inputs.rollPositionRad = source.rollPositionRad;
+    inputs.accelerationXGs = source.accelerationXGs;
+    inputs.accelerationYGs = source.accelerationYGs;
+    inputs.accelerationZGs = source.accelerationZGs;
+    inputs.odometryYawTimestamps = source.odometryYawTimestamps;
+    inputs.odometryYawVelocitiesRadPerSec = source.odometryYawVelocitiesRadPerSec;
+    inputs.odometryPitchPositionsRad = source.odometryPitchPositionsRad;
+    inputs.odometryRollPositionsRad = source.odometryRollPositionsRad;
+    inputs.odometryAccelerationsXGs = source.odometryAccelerationsXGs;
+    inputs.odometryAccelerationsYGs = source.odometryAccelerationsYGs;
+    inputs.odometryAccelerationsZGs = source.odometryAccelerationsZGs;
+
+    // Calculate yaw
+    int sampleCount =
+        Math.min(source.odometryYawTimestamps.length, source.odometryYawPositions.length);
+    inputs.odometryYawPositions = getYawPositionBuffer(sampleCount);
+    double yawRad;
+    if (primaryConnected && secondaryConnected) {
+      // Fuse each primary sample with the secondary gyro at the same time
+      secondaryCursor = 0;
+      for (int i = 0; i < sampleCount; i++) {
+        double timestamp = primaryInputs.odometryYawTimestamps[i];
+        double primaryYaw = getPrimaryYaw(primaryInputs.odometryYawPositions[i]);
+        double secondaryYaw = getSecondaryYaw(timestamp);
+        inputs.odometryYawPositions[i] =
+            new Rotation2d(fuse(timestamp, primaryYaw, secondaryYaw, true));
+      }
+      yawRad =
+          fuse(
+              biasTimestamp,
+              getPrimaryYaw(primaryInputs.yawPosition),
+              secondaryInputs.yawPosition.getRadians(),
+              false);
+    } else if (primaryConnected) {
+      // Samples pass through unchanged until the primary has been re-seeded
+      for (int i = 0; i < sampleCount; i++) {
+        inputs.odometryYawPositions[i] =
+            primaryOffsetRad == 0.0
+                ? primaryInputs.odometryYawPositions[i]
+                : new Rotation2d(getPrimaryYaw(primaryInputs.odometryYawPositions[i]));
+      }
+      yawRad = getPrimaryYaw(primaryInputs.yawPosition);
+    } else {
+      // Fail over to the secondary gyro, correcting for bias and drift
+      if (secondaryConnected && !biasInitialized && hasOutput) {
+        biasRad = MathUtil.angleModulus(secondaryInputs.yawPosition.getRadians() - lastYawRad);
+        driftRadPerSec = 0.0;
+        biasTimestamp = Double.NaN;
+        biasInitialized = true;
+      }
+      for (int i = 0; i < sampleCount; i++) {
+        inputs.odometryYawPositions[i] =
+            new Rotation2d(
+                secondaryInputs.odometryYawPositions[i].getRadians()
+                    - biasAt(secondaryInputs.odometryYawTimestamps[i]));
+      }
+      double latestTimestamp =
+          sampleCount > 0 ? secondaryInputs.odometryYawTimestamps[sampleCount - 1] : biasTimestamp;
+      yawRad = secondaryInputs.yawPosition.getRadians() - biasAt(latestTimestamp);
+    }
+    inputs.yawPosition = new Rotation2d(yawRad);
+    if (inputs.connected) {
+      lastYawRad = yawRad;
+      hasOutput = true;
+    }
+
+    // Save fusion state
+    inputs.primaryConnected = primaryConnected;
+    inputs.secondaryConnected = secondaryConnected;
+    inputs.secondaryBiasRad = biasRad;
+    inputs.secondaryDriftRadPerSec = driftRadPerSec;
+    inputs.rejectedSampleCount = rejectedSampleCount;
+  }
+
+  /**
+   * Returns a reused array for the specified number of output samples. The sample count varies by
+   * a few from cycle to cycle, so one array is kept for each count seen.
+   */
+  private Rotation2d[] getYawPositionBuffer(int sampleCount) {
+    if (sampleCount >= yawPositionBuffers.length) {
+      yawPositionBuffers = Arrays.copyOf(yawPositionBuffers, sampleCount + 1);
+    }
+    if (yawPositionBuffers[sampleCount] == null) {
+      yawPositionBuffers[sampleCount] = new Rotation2d[sampleCount];
+    }
+    return yawPositionBuffers[sampleCount];
+  }
+
+  /** Returns the primary gyro yaw in radians, including the offset from the last re-seed. */
+  private double getPrimaryYaw(Rotation2d rawYaw) {
+    return rawYaw.getRadians() + primaryOffsetRad;
+  }
+
+  /** Returns the predicted bias of the secondary gyro in radians at the specified timestamp. */
+  private double biasAt(double timestamp) {
+    if (Double.isNaN(timestamp) || Double.isNaN(biasTimestamp)) {
+      return biasRad;
+    }
+    return biasRad + driftRadPerSec * (timestamp - biasTimestamp);
+  }
+
+  /**
+   * Returns the fused yaw in radians for a pair of samples, optionally updating the bias and drift
+   * estimates with an alpha-beta filter. The secondary sample is ignored if it is NaN or disagrees
+   * with the primary.
+   */
+  private double fuse(
+      double timestamp, double primaryYaw, double secondaryYaw, boolean updateBias) {
+    if (Double.isNaN(secondaryYaw)) {
+      return primaryYaw;
+    }
+    if (!biasInitialized) {
+      biasRad = MathUtil.angleModulus(secondaryYaw - primaryYaw);
+      driftRadPerSec = 0.0;
+      biasTimestamp = timestamp;
+      biasInitialized = true;
+    }
+
+    // Reject outliers, re-seeding the bias if the gyros disagree persistently
+    double predictedBias = biasAt(timestamp);
+    double residual = MathUtil.angleModulus(secondaryYaw - predictedBias - primaryYaw);
+    if (Math.abs(residual) > OUTLIER_THRESHOLD) {
+      if (updateBias) {
+        rejectedSampleCount++;
+        consecutiveOutliers++;
+        if (consecutiveOutliers >= MAX_CONSECUTIVE_OUTLIERS) {
+          biasRad = MathUtil.angleModulus(predictedBias + residual);
+          driftRadPerSec = 0.0;
+          biasTimestamp = timestamp;
+          consecutiveOutliers = 0;
+        }
+      }
+      return primaryYaw;
+    }
+
+    // Update bias and drift, then blend
+    if (updateBias) {
+      consecutiveOutliers = 0;
+      double dt = Double.isNaN(biasTimestamp) ? 0.0 : timestamp - biasTimestamp;
+      biasRad = MathUtil.angleModulus(predictedBias + BIAS_GAIN * residual);
+      if (dt > 0.0) {
+        driftRadPerSec += DRIFT_GAIN * residual / dt;
+      }
+      biasTimestamp = timestamp;
+    }
+    return primaryYaw + SECONDARY_WEIGHT * residual;
+  }
+
+  /**
+   * Returns the secondary gyro yaw in radians at the specified timestamp, interpolating between
+   * samples, or NaN if there are no samples this cycle. Timestamps must be requested in increasing
+   * order within a cycle.
+   */
+  private double getSecondaryYaw(double timestamp) {
+    double[] timestamps = secondaryInputs.odometryYawTimestamps;
+    Rotation2d[] yawPositions = secondaryInputs.odometryYawPositions;
+    int count = Math.min(timestamps.length, yawPositions.length);
+    if (count == 0) {
+      return Double.NaN;
+    }
+    while (secondaryCursor < count - 1 && timestamps[secondaryCursor + 1] <= timestamp) {
+      secondaryCursor++;
+    }
+    double before = yawPositions[secondaryCursor].getRadians();
+    if (secondaryCursor == count - 1 || timestamp <= timestamps[secondaryCursor]) {
+      return before;
+    }
+    double after = yawPositions[secondaryCursor + 1].getRadians();
+    double t =
+        (timestamp - timestamps[secondaryCursor])
+            / (timestamps[secondaryCursor + 1] - timestamps[secondaryCursor]);
+    return before + MathUtil.angleModulus(after - before) * t;
+  }
+}
@@ -15,19 +15,71 @@ package frc.robot.subsystems.drive;
 
 import com.studica.frc.AHRS;
 import com.studica.frc.AHRS.NavXComType;
+import com.studica.frc.AHRSProtocol.AHRSUpdateBase;
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.util.Units;
-import java.util.Queue;
+import edu.wpi.first.wpilibj.RobotController;
+import frc.robot.util.TimestampedSampleBuffer;
 
-/** IO implementation for NavX. */
+/**
+ * IO implementation for NavX. High-frequency samples are captured from the AHRS update callback and
+ * timestamped using the sensor's own clock, independent of the Phoenix odometry thread.
+ */
 public class GyroIONavX implements GyroIO {
+  // Sample channels
+  private static final int YAW = 0;
+  private static final int YAW_VELOCITY = 1;
+  private static final int PITCH = 2;
+  private static final int ROLL = 3;
+  private static final int ACCELERATION_X = 4;
+  private static final int ACCELERATION_Y = 5;
+  private static final int ACCELERATION_Z = 6;
+  private static final int CHANNEL_COUNT = 7;
+
+  // Allowed drift between the sensor and FPGA clocks (secs per sec)
+  private static final double CLOCK_DRIFT_ALLOWANCE = 1e-3;
+
   private final AHRS navX = new AHRS(NavXComType.kMXP_SPI, (byte) Drive.ODOMETRY_FREQUENCY);
-  private final Queue<Double> yawPositionQueue;
-  private final Queue<Double> yawTimestampQueue;
+  private final TimestampedSampleBuffer sampleBuffer =
+      new TimestampedSampleBuffer(CHANNEL_COUNT, 50);
+
+  // Only accessed from the AHRS callback thread
+  private final double[] sample = new double[CHANNEL_COUNT];
+  private double clockOffset = Double.POSITIVE_INFINITY;
+  private double lastSensorTimestamp = Double.NEGATIVE_INFINITY;
 
   public GyroIONavX() {
-    yawTimestampQueue = PhoenixOdometryThread.getInstance().makeTimestampQueue();
-    yawPositionQueue = PhoenixOdometryThread.getInstance().registerSignal(navX::getYaw);
+    navX.registerCallback(this::sampleReceived, null);
+  }
+
+  private void sampleReceived(
+      long systemTimestamp, long sensorTimestamp, AHRSUpdateBase update, Object context) {
+    // Map the sensor clock onto the FPGA clock. The smallest observed offset has the least
+    // transport delay, and it is allowed to relax slowly to follow drift between the clocks.
+    double fpgaTimestamp = RobotController.getFPGATime() / 1e6;
+    double sensorTimestampSecs = sensorTimestamp / 1000.0;
+    double offset = fpgaTimestamp - sensorTimestampSecs;
+    if (sensorTimestampSecs <= lastSensorTimestamp) {
+      clockOffset = offset; // Sensor restarted or repeated a sample
+    } else if (Double.isFinite(lastSensorTimestamp)) {
+      clockOffset =
+          Math.min(
+              offset,
+              clockOffset + CLOCK_DRIFT_ALLOWANCE * (sensorTimestampSecs - lastSensorTimestamp));
+    } else {
+      clockOffset = offset;
+    }
+    lastSensorTimestamp = sensorTimestampSecs;
+
+    // Save sample
+    sample[YAW] = Units.degreesToRadians(-update.yaw);
+    sample[YAW_VELOCITY] = Units.degreesToRadians(-navX.getRawGyroZ());
+    sample[PITCH] = Units.degreesToRadians(update.pitch);
+    sample[ROLL] = Units.degreesToRadians(update.roll);
+    sample[ACCELERATION_X] = navX.getRawAccelX();
+    sample[ACCELERATION_Y] = navX.getRawAccelY();
+    sample[ACCELERATION_Z] = navX.getRawAccelZ();
+    sampleBuffer.add(sensorTimestampSecs + clockOffset, sample);
   }
 
   @Override
@@ -35,14 +87,25 @@ public class GyroIONavX implements GyroIO {
     inputs.connected = navX.isConnected();
     inputs.yawPosition = Rotation2d.fromDegrees(-navX.getYaw());
     inputs.yawVelocityRadPerSec = Units.degreesToRadians(-navX.getRawGyroZ());
+    inputs.pitchPositionRad = Units.degreesToRadians(navX.getPitch());
+    inputs.rollPositionRad = Units.degreesToRadians(navX.getRoll());
+    // Raw accelerometer readings include gravity, matching the Pigeon 2 (world linear
+    // acceleration from the NavX has gravity removed)
+    inputs.accelerationXGs = navX.getRawAccelX();
+    inputs.accelerationYGs = navX.getRawAccelY();
+    inputs.accelerationZGs = navX.getRawAccelZ();
 
-    inputs.odometryYawTimestamps =
-        yawTimestampQueue.stream().mapToDouble((Double value) -> value).toArray();
-    inputs.odometryYawPositions =
-        yawPositionQueue.stream()
-            .map((Double value) -> Rotation2d.fromDegrees(-value))
-            .toArray(Rotation2d[]::new);
-    yawTimestampQueue.clear();
-    yawPositionQueue.clear();
+    double[][] samples = sampleBuffer.drain();
+    inputs.odometryYawTimestamps = samples[0];
+    inputs.odometryYawPositions = new Rotation2d[samples[0].length];
+    for (int i = 0; i < samples[0].length; i++) {
+      inputs.odometryYawPositions[i] = new Rotation2d(samples[YAW + 1][i]);
+    }
+    inputs.odometryYawVelocitiesRadPerSec = samples[YAW_VELOCITY + 1];
+    inputs.odometryPitchPositionsRad = samples[PITCH + 1];
+    inputs.odometryRollPositionsRad = samples[ROLL + 1];
+    inputs.odometryAccelerationsXGs = samples[ACCELERATION_X + 1];
+    inputs.odometryAccelerationsYGs = samples[ACCELERATION_Y + 1];
+    inputs.odometryAccelerationsZGs = samples[ACCELERATION_Z + 1];
   }
 }
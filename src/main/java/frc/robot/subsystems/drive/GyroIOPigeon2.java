@@ -13,6 +13,8 @@
 
 package frc.robot.subsystems.drive;
 
+import static frc.robot.subsystems.drive.PhoenixOdometryThread.drainQueue;
+
 import com.ctre.phoenix6.BaseStatusSignal;
 import com.ctre.phoenix6.StatusCode;
 import com.ctre.phoenix6.StatusSignal;
@@ -22,6 +24,7 @@ import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.util.Units;
 import edu.wpi.first.units.measure.Angle;
 import edu.wpi.first.units.measure.AngularVelocity;
+import edu.wpi.first.units.measure.LinearAcceleration;
 import frc.robot.generated.TunerConstants;
 import java.util.Queue;
 
@@ -32,33 +35,72 @@ public class GyroIOPigeon2 implements GyroIO {
           TunerConstants.DrivetrainConstants.Pigeon2Id,
           TunerConstants.DrivetrainConstants.CANBusName);
   private final StatusSignal<Angle> yaw = pigeon.getYaw();
+  private final StatusSignal<AngularVelocity> yawVelocity = pigeon.getAngularVelocityZWorld();
+  private final StatusSignal<Angle> pitch = pigeon.getPitch();
+  private final StatusSignal<Angle> roll = pigeon.getRoll();
+  private final StatusSignal<LinearAcceleration> accelerationX = pigeon.getAccelerationX();
+  private final StatusSignal<LinearAcceleration> accelerationY = pigeon.getAccelerationY();
+  private final StatusSignal<LinearAcceleration> accelerationZ = pigeon.getAccelerationZ();
   private final Queue<Double> yawPositionQueue;
+  private final Queue<Double> yawVelocityQueue;
+  private final Queue<Double> pitchQueue;
+  private final Queue<Double> rollQueue;
+  private final Queue<Double> accelerationXQueue;
+  private final Queue<Double> accelerationYQueue;
+  private final Queue<Double> accelerationZQueue;
   private final Queue<Double> yawTimestampQueue;
-  private final StatusSignal<AngularVelocity> yawVelocity = pigeon.getAngularVelocityZWorld();
 
   public GyroIOPigeon2() {
     pigeon.getConfigurator().apply(new Pigeon2Configuration());
     pigeon.getConfigurator().setYaw(0.0);
-    yaw.setUpdateFrequency(Drive.ODOMETRY_FREQUENCY);
-    yawVelocity.setUpdateFrequency(50.0);
+    BaseStatusSignal.setUpdateFrequencyForAll(
+        Drive.ODOMETRY_FREQUENCY,
+        yaw,
+        yawVelocity,
+        pitch,
+        roll,
+        accelerationX,
+        accelerationY,
+        accelerationZ);
     pigeon.optimizeBusUtilization();
-    yawTimestampQueue = PhoenixOdometryThread.getInstance().makeTimestampQueue();
-    yawPositionQueue = PhoenixOdometryThread.getInstance().registerSignal(pigeon.getYaw());
+    PhoenixOdometryThread odometryThread = PhoenixOdometryThread.getInstance();
+    yawTimestampQueue = odometryThread.makeTimestampQueue();
+    yawPositionQueue = odometryThread.registerSignal(yaw, yawVelocity);
+    yawVelocityQueue = odometryThread.registerSignal(yawVelocity);
+    pitchQueue = odometryThread.registerSignal(pitch);
+    rollQueue = odometryThread.registerSignal(roll);
+    accelerationXQueue = odometryThread.registerSignal(accelerationX);
+    accelerationYQueue = odometryThread.registerSignal(accelerationY);
+    accelerationZQueue = odometryThread.registerSignal(accelerationZ);
   }
 
   @Override
   public void updateInputs(GyroIOInputs inputs) {
-    inputs.connected = BaseStatusSignal.refreshAll(yaw, yawVelocity).equals(StatusCode.OK);
+    var status =
+        BaseStatusSignal.refreshAll(
+            yaw, yawVelocity, pitch, roll, accelerationX, accelerationY, accelerationZ);
+    inputs.connected = status.equals(StatusCode.OK);
     inputs.yawPosition = Rotation2d.fromDegrees(yaw.getValueAsDouble());
     inputs.yawVelocityRadPerSec = Units.degreesToRadians(yawVelocity.getValueAsDouble());
+    inputs.pitchPositionRad = Units.degreesToRadians(pitch.getValueAsDouble());
+    inputs.rollPositionRad = Units.degreesToRadians(roll.getValueAsDouble());
+    inputs.accelerationXGs = accelerationX.getValueAsDouble();
+    inputs.accelerationYGs = accelerationY.getValueAsDouble();
+    inputs.accelerationZGs = accelerationZ.getValueAsDouble();
 
-    inputs.odometryYawTimestamps =
-        yawTimestampQueue.stream().mapToDouble((Double value) -> value).toArray();
-    inputs.odometryYawPositions =
-        yawPositionQueue.stream()
-            .map((Double value) -> Rotation2d.fromDegrees(value))
-            .toArray(Rotation2d[]::new);
-    yawTimestampQueue.clear();
-    yawPositionQueue.clear();
+    // Drain odometry samples (the odometry lock is held, so all queues have the same length)
+    inputs.odometryYawTimestamps = drainQueue(yawTimestampQueue, 1.0);
+    double[] yawPositionsRad = drainQueue(yawPositionQueue, Units.degreesToRadians(1.0));
+    inputs.odometryYawPositions = new Rotation2d[yawPositionsRad.length];
+    for (int i = 0; i < yawPositionsRad.length; i++) {
+      inputs.odometryYawPositions[i] = new Rotation2d(yawPositionsRad[i]);
+    }
+    inputs.odometryYawVelocitiesRadPerSec =
+        drainQueue(yawVelocityQueue, Units.degreesToRadians(1.0));
+    inputs.odometryPitchPositionsRad = drainQueue(pitchQueue, Units.degreesToRadians(1.0));
+    inputs.odometryRollPositionsRad = drainQueue(rollQueue, Units.degreesToRadians(1.0));
+    inputs.odometryAccelerationsXGs = drainQueue(accelerationXQueue, 1.0);
+    inputs.odometryAccelerationsYGs = drainQueue(accelerationYQueue, 1.0);
+    inputs.odometryAccelerationsZGs = drainQueue(accelerationZQueue, 1.0);
   }
 }
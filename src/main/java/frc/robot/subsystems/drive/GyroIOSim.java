@@ -0,0 +1,141 @@
+// Copyright (c) 2025 FRC Team 1466
+// https://github.com/FRC1466
+
+package frc.robot.subsystems.drive;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Twist2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.math.kinematics.SwerveDriveKinematics;
+import edu.wpi.first.math.kinematics.SwerveModuleState;
+import edu.wpi.first.math.util.Units;
+import frc.robot.util.SimNoise;
+import java.util.Arrays;
+
+/**
+ * Physics sim implementation of gyro IO. The chassis angular velocity is calculated from the module
+ * sims at each physics sub-step and integrated, producing odometry samples at the same timestamps
+ * as the modules, which reach the robot code through the {@link DriveSimulation}. The integrated
+ * chassis motion is also tracked as a ground truth pose, which may differ from the odometry pose
+ * when noise is enabled.
+ */
+public class GyroIOSim implements GyroIO {
+  private static final double GRAVITY = 9.80665; // Meters per sec squared
+  private static final double DRIFT_STD_DEV = Units.degreesToRadians(0.05); // Rad per sec
+
+  // CAN sample channels, relative to the gyro offset
+  private static final int YAW = 0;
+  private static final int YAW_VELOCITY = 1;
+  private static final int ACCELERATION_X = 2;
+  private static final int ACCELERATION_Y = 3;
+  static final int CAN_CHANNEL_COUNT = 4;
+
+  private final DriveSimulation simulation;
+  private final ModuleIOSim[] modules;
+  private final int canChannelOffset;
+  private final SwerveDriveKinematics kinematics =
+      new SwerveDriveKinematics(Drive.getModuleTranslations());
+  private final SwerveModuleState[] moduleStates;
+
+  private final double driftRadPerSec = SimNoise.gaussian(DRIFT_STD_DEV);
+  private double driftRad = 0.0;
+  private Pose2d groundTruthPose = new Pose2d();
+
+  private double yawRad = 0.0;
+  private double yawVelocityRadPerSec = 0.0;
+  private double lastVxMetersPerSec = 0.0;
+  private double lastVyMetersPerSec = 0.0;
+  private double accelerationXGs = 0.0;
+  private double accelerationYGs = 0.0;
+
+  public GyroIOSim(DriveSimulation simulation) {
+    this.simulation = simulation;
+    modules = simulation.getModules();
+    canChannelOffset = simulation.getGyroChannelOffset();
+    moduleStates = new SwerveModuleState[modules.length];
+    for (int i = 0; i < modules.length; i++) {
+      moduleStates[i] = new SwerveModuleState();
+    }
+    simulation.setGyro(this);
+  }
+
+  /**
+   * Advances the gyro by one sub-step, after the modules have been stepped.
+   *
+   * @param i The index of the sub-step within the loop.
+   */
+  void step(int i) {
+    // Calculate chassis speeds from the module states at this sub-step
+    double dt = ModuleIOSim.SUBSTEP_PERIOD_SECS;
+    for (int m = 0; m < modules.length; m++) {
+      moduleStates[m].speedMetersPerSecond =
+          modules[m].getSampleDriveVelocitiesRadPerSec()[i] * modules[m].getWheelRadius();
+      moduleStates[m].angle = new Rotation2d(modules[m].getSampleTurnPositionsRad()[i]);
+    }
+    ChassisSpeeds speeds = kinematics.toChassisSpeeds(moduleStates);
+
+    // Integrate
+    yawVelocityRadPerSec = speeds.omegaRadiansPerSecond;
+    yawRad = MathUtil.angleModulus(yawRad + yawVelocityRadPerSec * dt);
+    driftRad += driftRadPerSec * dt;
+    groundTruthPose =
+        groundTruthPose.exp(
+            new Twist2d(
+                speeds.vxMetersPerSecond * dt,
+                speeds.vyMetersPerSecond * dt,
+                speeds.omegaRadiansPerSecond * dt));
+    accelerationXGs = (speeds.vxMetersPerSecond - lastVxMetersPerSec) / dt / GRAVITY;
+    accelerationYGs = (speeds.vyMetersPerSecond - lastVyMetersPerSec) / dt / GRAVITY;
+    lastVxMetersPerSec = speeds.vxMetersPerSecond;
+    lastVyMetersPerSec = speeds.vyMetersPerSecond;
+  }
+
+  /** Copies the values of the latest sub-step into a CAN sample, starting at the offset. */
+  void writeCANSample(double[] canSample, int offset) {
+    canSample[offset + YAW] = yawRad + driftRad;
+    canSample[offset + YAW_VELOCITY] = yawVelocityRadPerSec + driftRadPerSec;
+    canSample[offset + ACCELERATION_X] = accelerationXGs;
+    canSample[offset + ACCELERATION_Y] = accelerationYGs;
+  }
+
+  @Override
+  public void updateInputs(GyroIOInputs inputs) {
+    // Update inputs from received samples
+    simulation.update();
+    double[][] samples = simulation.getReceivedSamples();
+    int sampleCount = samples[0].length;
+    inputs.connected = simulation.isCANConnected();
+    inputs.yawPosition = new Rotation2d(simulation.getReceivedValue(canChannelOffset + YAW));
+    inputs.yawVelocityRadPerSec = simulation.getReceivedValue(canChannelOffset + YAW_VELOCITY);
+    inputs.pitchPositionRad = 0.0;
+    inputs.rollPositionRad = 0.0;
+    inputs.accelerationXGs = simulation.getReceivedValue(canChannelOffset + ACCELERATION_X);
+    inputs.accelerationYGs = simulation.getReceivedValue(canChannelOffset + ACCELERATION_Y);
+    inputs.accelerationZGs = 1.0;
+
+    inputs.odometryYawTimestamps = samples[0];
+    inputs.odometryYawPositions = new Rotation2d[sampleCount];
+    for (int i = 0; i < sampleCount; i++) {
+      inputs.odometryYawPositions[i] = new Rotation2d(samples[canChannelOffset + YAW + 1][i]);
+    }
+    inputs.odometryYawVelocitiesRadPerSec = samples[canChannelOffset + YAW_VELOCITY + 1];
+    inputs.odometryPitchPositionsRad = new double[sampleCount]; // Level floor
+    inputs.odometryRollPositionsRad = new double[sampleCount];
+    inputs.odometryAccelerationsXGs = samples[canChannelOffset + ACCELERATION_X + 1];
+    inputs.odometryAccelerationsYGs = samples[canChannelOffset + ACCELERATION_Y + 1];
+    inputs.odometryAccelerationsZGs = new double[sampleCount];
+    Arrays.fill(inputs.odometryAccelerationsZGs, 1.0);
+  }
+
+  /** Returns the simulated robot pose on the field. */
+  public Pose2d getGroundTruthPose() {
+    return groundTruthPose;
+  }
+
+  /** Moves the simulated robot to the specified pose on the field. */
+  public void setGroundTruthPose(Pose2d pose) {
+    groundTruthPose = pose;
+  }
+}
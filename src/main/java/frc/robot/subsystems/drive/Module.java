@@ -35,7 +35,7 @@ public class Module {
   private final Alert driveDisconnectedAlert;
   private final Alert turnDisconnectedAlert;
   private final Alert turnEncoderDisconnectedAlert;
-  private SwerveModulePosition[] odometryPositions = new SwerveModulePosition[] {};
+  private final ModuleHealth health;
 
   public Module(
       ModuleIO io,
@@ -56,48 +56,45 @@ public class Module {
         new Alert(
             "Disconnected turn encoder on module " + Integer.toString(index) + ".",
             AlertType.kError);
+    health = new ModuleHealth(index, constants.WheelRadius);
   }
 
   public void periodic() {
     io.updateInputs(inputs);
     Logger.processInputs("Drive/Module" + Integer.toString(index), inputs);
 
-    // Calculate positions for odometry
-    int sampleCount = inputs.odometryTimestamps.length; // All signals are sampled together
-    odometryPositions = new SwerveModulePosition[sampleCount];
-    for (int i = 0; i < sampleCount; i++) {
-      double positionMeters = inputs.odometryDrivePositionsRad[i] * constants.WheelRadius;
-      Rotation2d angle = inputs.odometryTurnPositions[i];
-      odometryPositions[i] = new SwerveModulePosition(positionMeters, angle);
-    }
-
     // Update alerts
     driveDisconnectedAlert.set(!inputs.driveConnected);
     turnDisconnectedAlert.set(!inputs.turnConnected);
     turnEncoderDisconnectedAlert.set(!inputs.turnEncoderConnected);
-  }
 
-  /** Runs the module with the specified setpoint state. Mutates the state to optimize it. */
-  public void runSetpoint(SwerveModuleState state) {
-    // Optimize velocity setpoint
-    state.optimize(getAngle());
-    state.cosineScale(inputs.turnPosition);
+    // Update health statistics
+    health.update(inputs);
+  }
 
-    // Apply setpoints
-    io.setDriveVelocity(state.speedMetersPerSecond / constants.WheelRadius);
-    io.setTurnPosition(state.angle);
+  /**
+   * Runs the module with an already optimized setpoint. See {@link ModuleBank#runSetpoints} for
+   * optimization and cosine scaling.
+   */
+  public void runSetpoint(double driveVelocityRadPerSec, double turnPositionRad) {
+    io.setDriveVelocity(driveVelocityRadPerSec);
+    io.setTurnPosition(turnPositionRad);
+    health.recordSetpoint(driveVelocityRadPerSec, turnPositionRad);
   }
 
   /** Runs the module with the specified output while controlling to zero degrees. */
   public void runCharacterization(double output) {
     io.setDriveOpenLoop(output);
-    io.setTurnPosition(new Rotation2d());
+    io.setTurnPosition(0.0);
+    health.recordDriveOpenLoop();
   }
 
   /** Disables all outputs to motors. */
   public void stop() {
     io.setDriveOpenLoop(0.0);
     io.setTurnOpenLoop(0.0);
+    health.recordDriveOpenLoop();
+    health.recordTurnOpenLoop();
   }
 
   /** Returns the current turn angle of the module. */
@@ -110,6 +107,11 @@ public class Module {
     return inputs.drivePositionRad * constants.WheelRadius;
   }
 
+  /** Returns the current drive velocity of the module in radians per second. */
+  public double getDriveVelocityRadPerSec() {
+    return inputs.driveVelocityRadPerSec;
+  }
+
   /** Returns the current drive velocity of the module in meters per second. */
   public double getVelocityMetersPerSec() {
     return inputs.driveVelocityRadPerSec * constants.WheelRadius;
@@ -125,9 +127,14 @@ public class Module {
     return new SwerveModuleState(getVelocityMetersPerSec(), getAngle());
   }
 
-  /** Returns the module positions received this cycle. */
-  public SwerveModulePosition[] getOdometryPositions() {
-    return odometryPositions;
+  /** Returns the drive position in meters of the specified sample received this cycle. */
+  public double getOdometryPositionMeters(int sampleIndex) {
+    return inputs.odometryDrivePositionsRad[sampleIndex] * constants.WheelRadius;
+  }
+
+  /** Returns the turn angle of the specified sample received this cycle. */
+  public Rotation2d getOdometryAngle(int sampleIndex) {
+    return inputs.odometryTurnPositions[sampleIndex];
   }
 
   /** Returns the timestamps of the samples received this cycle. */
@@ -135,6 +142,11 @@ public class Module {
     return inputs.odometryTimestamps;
   }
 
+  /** Returns the wheel radius of the module in meters. */
+  public double getWheelRadius() {
+    return constants.WheelRadius;
+  }
+
   /** Returns the module position in radians. */
   public double getWheelRadiusCharacterizationPosition() {
     return inputs.drivePositionRad;
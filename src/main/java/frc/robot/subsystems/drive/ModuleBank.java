@@ -0,0 +1,189 @@
+// Copyright (c) 2025 FRC Team 1466
+// https://github.com/FRC1466
+
+package frc.robot.subsystems.drive;
+
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.kinematics.SwerveModulePosition;
+import edu.wpi.first.math.kinematics.SwerveModuleState;
+import edu.wpi.first.math.util.Units;
+
+/**
+ * Struct-of-arrays view of the drivetrain modules. Each {@link Module} still owns its IO and logged
+ * inputs, but the measured state and setpoints that {@link Drive} works with every loop are copied
+ * into contiguous primitive arrays. Optimization, cosine scaling, and unit conversion then run as
+ * tight loops over doubles instead of through each module's objects.
+ */
+public class ModuleBank {
+  private final Module[] modules;
+  private final int moduleCount;
+  private final double[] wheelRadii;
+
+  // Measured state
+  private final double[] drivePositionsRad;
+  private final double[] driveVelocitiesRadPerSec;
+  private final double[] turnCos;
+  private final double[] turnSin;
+  private final SwerveModuleState[] measuredStates;
+  private final SwerveModulePosition[] measuredPositions;
+
+  // Setpoints
+  private final double[] setpointSpeedsMetersPerSec;
+  private final double[] setpointCos;
+  private final double[] setpointSin;
+  private final boolean[] setpointFlipped;
+  private final double[] setpointVelocitiesRadPerSec;
+
+  public ModuleBank(Module... modules) {
+    this.modules = modules;
+    moduleCount = modules.length;
+    wheelRadii = new double[moduleCount];
+    drivePositionsRad = new double[moduleCount];
+    driveVelocitiesRadPerSec = new double[moduleCount];
+    turnCos = new double[moduleCount];
+    turnSin = new double[moduleCount];
+    measuredStates = new SwerveModuleState[moduleCount];
+    measuredPositions = new SwerveModulePosition[moduleCount];
+    setpointSpeedsMetersPerSec = new double[moduleCount];
+    setpointCos = new double[moduleCount];
+    setpointSin = new double[moduleCount];
+    setpointFlipped = new boolean[moduleCount];
+    setpointVelocitiesRadPerSec = new double[moduleCount];
+    for (int i = 0; i < moduleCount; i++) {
+      wheelRadii[i] = modules[i].getWheelRadius();
+      turnCos[i] = 1.0;
+      measuredStates[i] = new SwerveModuleState();
+      measuredPositions[i] = new SwerveModulePosition();
+    }
+  }
+
+  /** Updates every module, then copies the measured state into the bank. */
+  public void periodic() {
+    for (int i = 0; i < moduleCount; i++) {
+      modules[i].periodic();
+    }
+    for (int i = 0; i < moduleCount; i++) {
+      Rotation2d angle = modules[i].getAngle();
+      drivePositionsRad[i] = modules[i].getWheelRadiusCharacterizationPosition();
+      driveVelocitiesRadPerSec[i] = modules[i].getDriveVelocityRadPerSec();
+      turnCos[i] = angle.getCos();
+      turnSin[i] = angle.getSin();
+      measuredStates[i].angle = angle;
+      measuredPositions[i].angle = angle;
+    }
+
+    // Convert to meters in the reused state objects
+    for (int i = 0; i < moduleCount; i++) {
+      measuredStates[i].speedMetersPerSecond = driveVelocitiesRadPerSec[i] * wheelRadii[i];
+      measuredPositions[i].distanceMeters = drivePositionsRad[i] * wheelRadii[i];
+    }
+  }
+
+  /**
+   * Optimizes, cosine scales, and applies a setpoint to every module. Mutates the states to match
+   * what was sent to the modules.
+   */
+  public void runSetpoints(SwerveModuleState[] states) {
+    // Gather setpoints
+    for (int i = 0; i < moduleCount; i++) {
+      setpointSpeedsMetersPerSec[i] = states[i].speedMetersPerSecond;
+      setpointCos[i] = states[i].angle.getCos();
+      setpointSin[i] = states[i].angle.getSin();
+    }
+
+    // Optimize and cosine scale
+    optimize(
+        moduleCount,
+        setpointSpeedsMetersPerSec,
+        setpointCos,
+        setpointSin,
+        setpointFlipped,
+        turnCos,
+        turnSin);
+
+    // Convert to wheel velocities
+    for (int i = 0; i < moduleCount; i++) {
+      setpointVelocitiesRadPerSec[i] = setpointSpeedsMetersPerSec[i] / wheelRadii[i];
+    }
+
+    // Apply setpoints. Flipped angles come from the negated cosine and sine, so the only object
+    // created is the Rotation2d for the logged state.
+    for (int i = 0; i < moduleCount; i++) {
+      if (setpointFlipped[i]) {
+        states[i].angle = new Rotation2d(setpointCos[i], setpointSin[i]);
+      }
+      states[i].speedMetersPerSecond = setpointSpeedsMetersPerSec[i];
+      modules[i].runSetpoint(setpointVelocitiesRadPerSec[i], states[i].angle.getRadians());
+    }
+  }
+
+  /**
+   * Optimizes and cosine scales setpoints in place against the measured turn angles. The cosine of
+   * the angle error is negative exactly when the error exceeds 90 degrees, so both steps reduce to
+   * a dot product with the measured heading. Flipped setpoints have their speed, cosine, and sine
+   * negated.
+   */
+  static void optimize(
+      int count,
+      double[] speedsMetersPerSec,
+      double[] setpointCos,
+      double[] setpointSin,
+      boolean[] flipped,
+      double[] turnCos,
+      double[] turnSin) {
+    for (int i = 0; i < count; i++) {
+      double cosError = setpointCos[i] * turnCos[i] + setpointSin[i] * turnSin[i];
+      flipped[i] = cosError < 0.0;
+      if (flipped[i]) {
+        speedsMetersPerSec[i] = -speedsMetersPerSec[i];
+        setpointCos[i] = -setpointCos[i];
+        setpointSin[i] = -setpointSin[i];
+        cosError = -cosError;
+      }
+      speedsMetersPerSec[i] *= cosError;
+    }
+  }
+
+  /** Runs every module with the specified output while controlling to zero degrees. */
+  public void runCharacterization(double output) {
+    for (int i = 0; i < moduleCount; i++) {
+      modules[i].runCharacterization(output);
+    }
+  }
+
+  /** Disables all outputs to motors. */
+  public void stop() {
+    for (int i = 0; i < moduleCount; i++) {
+      modules[i].stop();
+    }
+  }
+
+  /** Returns the number of modules in the bank. */
+  public int getModuleCount() {
+    return moduleCount;
+  }
+
+  /** Returns the measured module states. The returned array is reused every cycle. */
+  public SwerveModuleState[] getStates() {
+    return measuredStates;
+  }
+
+  /** Returns the measured module positions. The returned array is reused every cycle. */
+  public SwerveModulePosition[] getPositions() {
+    return measuredPositions;
+  }
+
+  /** Returns a copy of the drive position of each module in radians. */
+  public double[] getDrivePositionsRad() {
+    return drivePositionsRad.clone();
+  }
+
+  /** Returns the average drive velocity of the modules in rotations/sec (Phoenix native units). */
+  public double getAverageDriveVelocityRotPerSec() {
+    double total = 0.0;
+    for (int i = 0; i < moduleCount; i++) {
+      total += driveVelocitiesRadPerSec[i];
+    }
+    return Units.radiansToRotations(total / moduleCount);
+  }
+}
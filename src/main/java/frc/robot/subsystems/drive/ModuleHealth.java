@@ -0,0 +1,105 @@
+// Copyright (c) 2025 FRC Team 1466
+// https://github.com/FRC1466
+
+package frc.robot.subsystems.drive;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.util.Units;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Timer;
+import frc.robot.subsystems.drive.ModuleIO.ModuleIOInputs;
+import frc.robot.util.DecayingStatistics;
+
+/**
+ * Streaming health statistics for a single module. Samples are accumulated while enabled and the
+ * results are logged at a low rate, so failing modules show up during a match without storing or
+ * post-processing full logs. The statistics are exponentially weighted, so a module that starts
+ * failing partway through a match is not masked by earlier healthy samples.
+ */
+public class ModuleHealth {
+  private static final int LOG_PERIOD_CYCLES = 50; // Once per second
+  private static final double TURN_SETPOINT_STEP = Units.degreesToRadians(10.0);
+  private static final double TURN_SETTLED_TOLERANCE = Units.degreesToRadians(2.0);
+  private static final double WINDOW_SAMPLES = 250.0; // About 5 seconds of enabled cycles
+  private static final double SETTLING_WINDOW_SAMPLES = 20.0; // Turn settles are infrequent
+
+  private final String key;
+  private final double wheelRadius;
+  private final DecayingStatistics driveCurrent = new DecayingStatistics(WINDOW_SAMPLES);
+  private final DecayingStatistics turnCurrent = new DecayingStatistics(WINDOW_SAMPLES);
+  private final DecayingStatistics velocityError = new DecayingStatistics(WINDOW_SAMPLES);
+  private final DecayingStatistics turnSettlingTime =
+      new DecayingStatistics(SETTLING_WINDOW_SAMPLES);
+  private final DecayingStatistics canLatency = new DecayingStatistics(WINDOW_SAMPLES);
+
+  private boolean driveClosedLoop = false;
+  private double driveSetpointRadPerSec = 0.0;
+  private boolean turnClosedLoop = false;
+  private double turnSetpointRad = 0.0;
+  private boolean turnSettling = false;
+  private double turnSettlingStartTime = 0.0;
+  private int cycleCount = 0;
+
+  public ModuleHealth(int index, double wheelRadius) {
+    this.key = "Drive/Module" + Integer.toString(index) + "/Health";
+    this.wheelRadius = wheelRadius;
+  }
+
+  /** Records a closed-loop setpoint sent to the module. */
+  public void recordSetpoint(double driveVelocityRadPerSec, double turnPositionRad) {
+    driveClosedLoop = true;
+    driveSetpointRadPerSec = driveVelocityRadPerSec;
+
+    // Start timing a new settle when the turn setpoint jumps
+    if (!turnClosedLoop
+        || Math.abs(MathUtil.angleModulus(turnPositionRad - turnSetpointRad))
+            > TURN_SETPOINT_STEP) {
+      turnSettling = true;
+      turnSettlingStartTime = Timer.getTimestamp();
+    }
+    turnClosedLoop = true;
+    turnSetpointRad = turnPositionRad;
+  }
+
+  /** Records that the drive motor is running open loop. */
+  public void recordDriveOpenLoop() {
+    driveClosedLoop = false;
+  }
+
+  /** Records that the turn motor is running open loop. */
+  public void recordTurnOpenLoop() {
+    turnClosedLoop = false;
+    turnSettling = false;
+  }
+
+  /** Adds the latest inputs to the statistics and logs them periodically. */
+  public void update(ModuleIOInputs inputs) {
+    if (DriverStation.isEnabled()) {
+      driveCurrent.add(inputs.driveCurrentAmps);
+      turnCurrent.add(inputs.turnCurrentAmps);
+      if (inputs.driveConnected && inputs.turnConnected) {
+        canLatency.add(inputs.canLatencySecs);
+      }
+      if (driveClosedLoop) {
+        velocityError.add((driveSetpointRadPerSec - inputs.driveVelocityRadPerSec) * wheelRadius);
+      }
+      if (turnSettling
+          && Math.abs(MathUtil.angleModulus(turnSetpointRad - inputs.turnPosition.getRadians()))
+              < TURN_SETTLED_TOLERANCE) {
+        turnSettlingTime.add(Timer.getTimestamp() - turnSettlingStartTime);
+        turnSettling = false;
+      }
+    }
+
+    // Log at a low rate
+    cycleCount++;
+    if (cycleCount >= LOG_PERIOD_CYCLES) {
+      cycleCount = 0;
+      driveCurrent.log(key + "/DriveCurrentAmps");
+      turnCurrent.log(key + "/TurnCurrentAmps");
+      velocityError.log(key + "/VelocityErrorMetersPerSec");
+      turnSettlingTime.log(key + "/TurnSettlingTimeSecs");
+      canLatency.log(key + "/CANLatencySecs");
+    }
+  }
+}
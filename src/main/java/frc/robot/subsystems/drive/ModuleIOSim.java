@@ -22,12 +22,17 @@ import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.system.plant.DCMotor;
 import edu.wpi.first.math.system.plant.LinearSystemId;
 import edu.wpi.first.math.util.Units;
-import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj.simulation.DCMotorSim;
+import frc.robot.Constants;
+import frc.robot.util.SimNoise;
 
 /**
  * Physics sim implementation of module IO. The sim models are configured using a set of module
- * constants from Phoenix. Simulation is always based on voltage control.
+ * constants from Phoenix. Simulation is always based on voltage control. Physics is sub-stepped at
+ * the odometry frequency, producing several timestamped odometry samples per loop like the real
+ * robot. Modules are stepped by a {@link DriveSimulation}, and samples reach the robot code through
+ * its shared {@link SimCANChannel}. A module that was not passed to a drive simulation creates its
+ * own the first time it is updated.
  */
 public class ModuleIOSim implements ModuleIO {
   // TunerConstants doesn't support separate sim constants, so they are declared locally
@@ -41,17 +46,42 @@ public class ModuleIOSim implements ModuleIO {
   private static final double TURN_KD = 0.0;
   private static final DCMotor DRIVE_GEARBOX = DCMotor.getKrakenX60Foc(1);
   private static final DCMotor TURN_GEARBOX = DCMotor.getKrakenX60Foc(1);
+  private static final double DRIVE_FRICTION_STD_DEV = 0.1; // Volts, when sim noise is enabled
+  private static final double TURN_FRICTION_STD_DEV = 0.1; // Volts, when sim noise is enabled
+  static final int SUBSTEPS =
+      Math.max(1, (int) Math.round(Drive.ODOMETRY_FREQUENCY * Constants.loopPeriodSecs));
+  static final double SUBSTEP_PERIOD_SECS = Constants.loopPeriodSecs / SUBSTEPS;
+
+  // CAN sample channels, relative to this module's offset
+  private static final int DRIVE_POSITION = 0;
+  private static final int DRIVE_VELOCITY = 1;
+  private static final int TURN_POSITION = 2;
+  private static final int TURN_VELOCITY = 3;
+  static final int CAN_CHANNEL_COUNT = 4;
 
   private final DCMotorSim driveSim;
   private final DCMotorSim turnSim;
 
   private boolean driveClosedLoop = false;
   private boolean turnClosedLoop = false;
-  private PIDController driveController = new PIDController(DRIVE_KP, 0, DRIVE_KD);
-  private PIDController turnController = new PIDController(TURN_KP, 0, TURN_KD);
+  private PIDController driveController =
+      new PIDController(DRIVE_KP, 0, DRIVE_KD, SUBSTEP_PERIOD_SECS);
+  private PIDController turnController =
+      new PIDController(TURN_KP, 0, TURN_KD, SUBSTEP_PERIOD_SECS);
   private double driveFFVolts = 0.0;
   private double driveAppliedVolts = 0.0;
   private double turnAppliedVolts = 0.0;
+  private final double driveFrictionVolts = Math.abs(SimNoise.gaussian(DRIVE_FRICTION_STD_DEV));
+  private final double turnFrictionVolts = Math.abs(SimNoise.gaussian(TURN_FRICTION_STD_DEV));
+
+  // Samples from the most recent physics update
+  private final double wheelRadius;
+  private DriveSimulation simulation = null;
+  private int canChannelOffset = 0;
+  private final double[] sampleDrivePositionsRad = new double[SUBSTEPS];
+  private final double[] sampleDriveVelocitiesRadPerSec = new double[SUBSTEPS];
+  private final double[] sampleTurnPositionsRad = new double[SUBSTEPS];
+  private final double[] sampleTurnVelocitiesRadPerSec = new double[SUBSTEPS];
 
   public ModuleIOSim(
       SwerveModuleConstants<TalonFXConfiguration, TalonFXConfiguration, CANcoderConfiguration>
@@ -68,12 +98,29 @@ public class ModuleIOSim implements ModuleIO {
                 TURN_GEARBOX, constants.SteerInertia, constants.SteerMotorGearRatio),
             TURN_GEARBOX);
 
+    wheelRadius = constants.WheelRadius;
+
     // Enable wrapping for turn PID
     turnController.enableContinuousInput(-Math.PI, Math.PI);
   }
 
-  @Override
-  public void updateInputs(ModuleIOInputs inputs) {
+  /**
+   * Attaches this module to the simulation that steps it.
+   *
+   * @param simulation The drive simulation.
+   * @param canChannelOffset The index of this module's first channel on the shared CAN channel.
+   */
+  void setSimulation(DriveSimulation simulation, int canChannelOffset) {
+    this.simulation = simulation;
+    this.canChannelOffset = canChannelOffset;
+  }
+
+  /**
+   * Advances the physics by one sub-step.
+   *
+   * @param i The index of the sub-step within the loop.
+   */
+  void step(int i) {
     // Run closed-loop control
     if (driveClosedLoop) {
       driveAppliedVolts =
@@ -88,31 +135,79 @@ public class ModuleIOSim implements ModuleIO {
     }
 
     // Update simulation state
-    driveSim.setInputVoltage(MathUtil.clamp(driveAppliedVolts, -12.0, 12.0));
-    turnSim.setInputVoltage(MathUtil.clamp(turnAppliedVolts, -12.0, 12.0));
-    driveSim.update(0.02);
-    turnSim.update(0.02);
+    double driveFriction = driveFrictionVolts * Math.signum(driveSim.getAngularVelocityRadPerSec());
+    double turnFriction = turnFrictionVolts * Math.signum(turnSim.getAngularVelocityRadPerSec());
+    driveSim.setInputVoltage(MathUtil.clamp(driveAppliedVolts, -12.0, 12.0) - driveFriction);
+    turnSim.setInputVoltage(MathUtil.clamp(turnAppliedVolts, -12.0, 12.0) - turnFriction);
+    driveSim.update(SUBSTEP_PERIOD_SECS);
+    turnSim.update(SUBSTEP_PERIOD_SECS);
+
+    // Save sample
+    sampleDrivePositionsRad[i] = driveSim.getAngularPositionRad();
+    sampleDriveVelocitiesRadPerSec[i] = driveSim.getAngularVelocityRadPerSec();
+    sampleTurnPositionsRad[i] = turnSim.getAngularPositionRad();
+    sampleTurnVelocitiesRadPerSec[i] = turnSim.getAngularVelocityRadPerSec();
+  }
+
+  /** Copies the values of a sub-step into a CAN sample, starting at the specified offset. */
+  void writeCANSample(int i, double[] canSample, int offset) {
+    canSample[offset + DRIVE_POSITION] = sampleDrivePositionsRad[i];
+    canSample[offset + DRIVE_VELOCITY] = sampleDriveVelocitiesRadPerSec[i];
+    canSample[offset + TURN_POSITION] = sampleTurnPositionsRad[i];
+    canSample[offset + TURN_VELOCITY] = sampleTurnVelocitiesRadPerSec[i];
+  }
+
+  /** Returns the wheel radius in meters. */
+  double getWheelRadius() {
+    return wheelRadius;
+  }
+
+  /** Returns the drive velocity in rad/sec at each sample from the most recent physics update. */
+  double[] getSampleDriveVelocitiesRadPerSec() {
+    return sampleDriveVelocitiesRadPerSec;
+  }
+
+  /** Returns the turn position in radians at each sample from the most recent physics update. */
+  double[] getSampleTurnPositionsRad() {
+    return sampleTurnPositionsRad;
+  }
+
+  @Override
+  public void updateInputs(ModuleIOInputs inputs) {
+    if (simulation == null) {
+      new DriveSimulation(SimCANChannel.Config.IDEAL, this); // Attaches itself to this module
+    }
+    simulation.update();
+    double[][] samples = simulation.getReceivedSamples();
+    boolean connected = simulation.isCANConnected();
 
     // Update drive inputs
-    inputs.driveConnected = true;
-    inputs.drivePositionRad = driveSim.getAngularPositionRad();
-    inputs.driveVelocityRadPerSec = driveSim.getAngularVelocityRadPerSec();
+    inputs.driveConnected = connected;
+    inputs.drivePositionRad = simulation.getReceivedValue(canChannelOffset + DRIVE_POSITION);
+    inputs.driveVelocityRadPerSec = simulation.getReceivedValue(canChannelOffset + DRIVE_VELOCITY);
     inputs.driveAppliedVolts = driveAppliedVolts;
     inputs.driveCurrentAmps = Math.abs(driveSim.getCurrentDrawAmps());
 
     // Update turn inputs
-    inputs.turnConnected = true;
-    inputs.turnEncoderConnected = true;
-    inputs.turnAbsolutePosition = new Rotation2d(turnSim.getAngularPositionRad());
-    inputs.turnPosition = new Rotation2d(turnSim.getAngularPositionRad());
-    inputs.turnVelocityRadPerSec = turnSim.getAngularVelocityRadPerSec();
+    inputs.turnConnected = connected;
+    inputs.turnEncoderConnected = connected;
+    Rotation2d turnPosition =
+        new Rotation2d(simulation.getReceivedValue(canChannelOffset + TURN_POSITION));
+    inputs.turnAbsolutePosition = turnPosition;
+    inputs.turnPosition = turnPosition;
+    inputs.turnVelocityRadPerSec = simulation.getReceivedValue(canChannelOffset + TURN_VELOCITY);
     inputs.turnAppliedVolts = turnAppliedVolts;
     inputs.turnCurrentAmps = Math.abs(turnSim.getCurrentDrawAmps());
-
-    // Update odometry inputs (50Hz because high-frequency odometry in sim doesn't matter)
-    inputs.odometryTimestamps = new double[] {Timer.getFPGATimestamp()};
-    inputs.odometryDrivePositionsRad = new double[] {inputs.drivePositionRad};
-    inputs.odometryTurnPositions = new Rotation2d[] {inputs.turnPosition};
+    inputs.canLatencySecs = simulation.getCANLatencySecs();
+
+    // Update odometry inputs
+    inputs.odometryTimestamps = samples[0];
+    inputs.odometryDrivePositionsRad = samples[canChannelOffset + DRIVE_POSITION + 1];
+    inputs.odometryTurnPositions = new Rotation2d[samples[0].length];
+    for (int i = 0; i < samples[0].length; i++) {
+      inputs.odometryTurnPositions[i] =
+          new Rotation2d(samples[canChannelOffset + TURN_POSITION + 1][i]);
+    }
   }
 
   @Override
@@ -135,8 +230,8 @@ public class ModuleIOSim implements ModuleIO {
   }
 
   @Override
-  public void setTurnPosition(Rotation2d rotation) {
+  public void setTurnPosition(double positionRad) {
     turnClosedLoop = true;
-    turnController.setSetpoint(rotation.getRadians());
+    turnController.setSetpoint(positionRad);
   }
 }
@@ -159,7 +159,8 @@ public class ModuleIOTalonFX implements ModuleIO {
     // Create drive status signals
     drivePosition = driveTalon.getPosition();
     drivePositionQueue =
-        PhoenixOdometryThread.getInstance().registerSignal(driveTalon.getPosition());
+        PhoenixOdometryThread.getInstance()
+            .registerSignal(driveTalon.getPosition(), driveTalon.getVelocity());
     driveVelocity = driveTalon.getVelocity();
     driveAppliedVolts = driveTalon.getMotorVoltage();
     driveCurrent = driveTalon.getStatorCurrent();
@@ -167,7 +168,9 @@ public class ModuleIOTalonFX implements ModuleIO {
     // Create turn status signals
     turnAbsolutePosition = cancoder.getAbsolutePosition();
     turnPosition = turnTalon.getPosition();
-    turnPositionQueue = PhoenixOdometryThread.getInstance().registerSignal(turnTalon.getPosition());
+    turnPositionQueue =
+        PhoenixOdometryThread.getInstance()
+            .registerSignal(turnTalon.getPosition(), turnTalon.getVelocity());
     turnVelocity = turnTalon.getVelocity();
     turnAppliedVolts = turnTalon.getMotorVoltage();
     turnCurrent = turnTalon.getStatorCurrent();
@@ -184,6 +187,10 @@ public class ModuleIOTalonFX implements ModuleIO {
         turnVelocity,
         turnAppliedVolts,
         turnCurrent);
+    if (Drive.LATENCY_COMPENSATION) {
+      BaseStatusSignal.setUpdateFrequencyForAll(
+          Drive.ODOMETRY_FREQUENCY, driveVelocity, turnVelocity);
+    }
     ParentDevice.optimizeBusUtilizationForAll(driveTalon, turnTalon);
   }
 
@@ -198,7 +205,11 @@ public class ModuleIOTalonFX implements ModuleIO {
 
     // Update drive inputs
     inputs.driveConnected = driveConnectedDebounce.calculate(driveStatus.isOK());
-    inputs.drivePositionRad = Units.rotationsToRadians(drivePosition.getValueAsDouble());
+    inputs.drivePositionRad =
+        Units.rotationsToRadians(
+            Drive.LATENCY_COMPENSATION
+                ? BaseStatusSignal.getLatencyCompensatedValueAsDouble(drivePosition, driveVelocity)
+                : drivePosition.getValueAsDouble());
     inputs.driveVelocityRadPerSec = Units.rotationsToRadians(driveVelocity.getValueAsDouble());
     inputs.driveAppliedVolts = driveAppliedVolts.getValueAsDouble();
     inputs.driveCurrentAmps = driveCurrent.getValueAsDouble();
@@ -207,10 +218,17 @@ public class ModuleIOTalonFX implements ModuleIO {
     inputs.turnConnected = turnConnectedDebounce.calculate(turnStatus.isOK());
     inputs.turnEncoderConnected = turnEncoderConnectedDebounce.calculate(turnEncoderStatus.isOK());
     inputs.turnAbsolutePosition = Rotation2d.fromRotations(turnAbsolutePosition.getValueAsDouble());
-    inputs.turnPosition = Rotation2d.fromRotations(turnPosition.getValueAsDouble());
+    inputs.turnPosition =
+        Rotation2d.fromRotations(
+            Drive.LATENCY_COMPENSATION
+                ? BaseStatusSignal.getLatencyCompensatedValueAsDouble(turnPosition, turnVelocity)
+                : turnPosition.getValueAsDouble());
     inputs.turnVelocityRadPerSec = Units.rotationsToRadians(turnVelocity.getValueAsDouble());
     inputs.turnAppliedVolts = turnAppliedVolts.getValueAsDouble();
     inputs.turnCurrentAmps = turnCurrent.getValueAsDouble();
+    inputs.canLatencySecs =
+        (drivePosition.getTimestamp().getLatency() + turnPosition.getTimestamp().getLatency())
+            / 2.0;
 
     // Update odometry inputs
     inputs.odometryTimestamps =
@@ -257,12 +275,12 @@ public class ModuleIOTalonFX implements ModuleIO {
   }
 
   @Override
-  public void setTurnPosition(Rotation2d rotation) {
+  public void setTurnPosition(double positionRad) {
+    double positionRot = Units.radiansToRotations(positionRad);
     turnTalon.setControl(
         switch (constants.SteerMotorClosedLoopOutput) {
-          case Voltage -> positionVoltageRequest.withPosition(rotation.getRotations());
-          case TorqueCurrentFOC -> positionTorqueCurrentRequest.withPosition(
-              rotation.getRotations());
+          case Voltage -> positionVoltageRequest.withPosition(positionRot);
+          case TorqueCurrentFOC -> positionTorqueCurrentRequest.withPosition(positionRot);
         });
   }
 }
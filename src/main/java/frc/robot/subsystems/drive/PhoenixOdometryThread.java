@@ -17,6 +17,7 @@ import com.ctre.phoenix6.BaseStatusSignal;
 import com.ctre.phoenix6.CANBus;
 import com.ctre.phoenix6.StatusSignal;
 import edu.wpi.first.units.measure.Angle;
+import edu.wpi.first.units.measure.AngularVelocity;
 import edu.wpi.first.wpilibj.RobotController;
 import frc.robot.generated.TunerConstants;
 import java.util.ArrayList;
@@ -38,7 +39,9 @@ import java.util.function.DoubleSupplier;
 public class PhoenixOdometryThread extends Thread {
   private final Lock signalsLock =
       new ReentrantLock(); // Prevents conflicts when registering signals
-  private BaseStatusSignal[] phoenixSignals = new BaseStatusSignal[0];
+  private BaseStatusSignal[] phoenixSignals = new BaseStatusSignal[0]; // Includes slope signals
+  private final List<StatusSignal<?>> sampledSignals = new ArrayList<>();
+  private final List<StatusSignal<?>> sampledSlopes = new ArrayList<>();
   private final List<DoubleSupplier> genericSignals = new ArrayList<>();
   private final List<Queue<Double>> phoenixQueues = new ArrayList<>();
   private final List<Queue<Double>> genericQueues = new ArrayList<>();
@@ -68,15 +71,30 @@ public class PhoenixOdometryThread extends Thread {
   }
 
   /** Registers a Phoenix signal to be read from the thread. */
-  public Queue<Double> registerSignal(StatusSignal<Angle> signal) {
+  public Queue<Double> registerSignal(StatusSignal<?> signal) {
+    return addPhoenixSignal(signal, null);
+  }
+
+  /**
+   * Registers a Phoenix signal to be read from the thread. When latency compensation is enabled,
+   * each sample is extrapolated to the sample timestamp using the slope signal.
+   */
+  public Queue<Double> registerSignal(
+      StatusSignal<Angle> signal, StatusSignal<AngularVelocity> slope) {
+    return addPhoenixSignal(signal, Drive.LATENCY_COMPENSATION ? slope : null);
+  }
+
+  private Queue<Double> addPhoenixSignal(StatusSignal<?> signal, StatusSignal<?> slope) {
     Queue<Double> queue = new ArrayBlockingQueue<>(20);
     signalsLock.lock();
     Drive.odometryLock.lock();
     try {
-      BaseStatusSignal[] newSignals = new BaseStatusSignal[phoenixSignals.length + 1];
-      System.arraycopy(phoenixSignals, 0, newSignals, 0, phoenixSignals.length);
-      newSignals[phoenixSignals.length] = signal;
-      phoenixSignals = newSignals;
+      addWaitedSignal(signal);
+      if (slope != null) {
+        addWaitedSignal(slope);
+      }
+      sampledSignals.add(signal);
+      sampledSlopes.add(slope);
       phoenixQueues.add(queue);
     } finally {
       signalsLock.unlock();
@@ -85,6 +103,19 @@ public class PhoenixOdometryThread extends Thread {
     return queue;
   }
 
+  /** Adds a signal to the set to wait for, unless it is already registered. */
+  private void addWaitedSignal(BaseStatusSignal signal) {
+    for (BaseStatusSignal existing : phoenixSignals) {
+      if (existing == signal) {
+        return;
+      }
+    }
+    BaseStatusSignal[] newSignals = new BaseStatusSignal[phoenixSignals.length + 1];
+    System.arraycopy(phoenixSignals, 0, newSignals, 0, phoenixSignals.length);
+    newSignals[phoenixSignals.length] = signal;
+    phoenixSignals = newSignals;
+  }
+
   /** Registers a generic signal to be read from the thread. */
   public Queue<Double> registerSignal(DoubleSupplier signal) {
     Queue<Double> queue = new ArrayBlockingQueue<>(20);
@@ -100,6 +131,16 @@ public class PhoenixOdometryThread extends Thread {
     return queue;
   }
 
+  /** Removes all samples from a queue, returning them as an array multiplied by a scale factor. */
+  public static double[] drainQueue(Queue<Double> queue, double scale) {
+    double[] values = new double[queue.size()];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = queue.poll() * scale;
+    }
+    queue.clear();
+    return values;
+  }
+
   /** Returns a new queue that returns timestamp values for each sample. */
   public Queue<Double> makeTimestampQueue() {
     Queue<Double> queue = new ArrayBlockingQueue<>(20);
@@ -139,18 +180,28 @@ public class PhoenixOdometryThread extends Thread {
         // Sample timestamp is current FPGA time minus average CAN latency
         //     Default timestamps from Phoenix are NOT compatible with
         //     FPGA timestamps, this solution is imperfect but close
+        //     With latency compensation, samples are extrapolated to
+        //     the current FPGA time instead
         double timestamp = RobotController.getFPGATime() / 1e6;
-        double totalLatency = 0.0;
-        for (BaseStatusSignal signal : phoenixSignals) {
-          totalLatency += signal.getTimestamp().getLatency();
-        }
-        if (phoenixSignals.length > 0) {
-          timestamp -= totalLatency / phoenixSignals.length;
+        if (!Drive.LATENCY_COMPENSATION) {
+          double totalLatency = 0.0;
+          for (BaseStatusSignal signal : phoenixSignals) {
+            totalLatency += signal.getTimestamp().getLatency();
+          }
+          if (phoenixSignals.length > 0) {
+            timestamp -= totalLatency / phoenixSignals.length;
+          }
         }
 
         // Add new samples to queues
-        for (int i = 0; i < phoenixSignals.length; i++) {
-          phoenixQueues.get(i).offer(phoenixSignals[i].getValueAsDouble());
+        for (int i = 0; i < sampledSignals.size(); i++) {
+          StatusSignal<?> slope = sampledSlopes.get(i);
+          double value =
+              slope == null
+                  ? sampledSignals.get(i).getValueAsDouble()
+                  : BaseStatusSignal.getLatencyCompensatedValueAsDouble(
+                      sampledSignals.get(i), slope);
+          phoenixQueues.get(i).offer(value);
         }
         for (int i = 0; i < genericSignals.size(); i++) {
           genericQueues.get(i).offer(genericSignals.get(i).getAsDouble());
@@ -0,0 +1,136 @@
+// Copyright (c) 2025 FRC Team 1466
+// https://github.com/FRC1466
+
+package frc.robot.subsystems.drive;
+
+import frc.robot.util.SimNoise;
+import java.util.ArrayDeque;
+import java.util.Random;
+import org.littletonrobotics.junction.Logger;
+
+/**
+ * Simulated CAN link between the sim devices and the robot code. Samples are delayed by a latency
+ * with jitter, and may be dropped or arrive stale (repeating the previous values). Timestamps are
+ * estimated from the arrival time like the real odometry thread, so jitter shows up as timestamp
+ * error.
+ *
+ * <p>Like the odometry thread waiting for all signals at once, one channel carries the samples of
+ * every device on the drivetrain (see {@link DriveSimulation}), so all devices receive the same
+ * number of samples with the same timestamps.
+ */
+public class SimCANChannel {
+  /** Timing with realistic faults, for headless and Monte Carlo simulations. */
+  public static final Config DEFAULT_CONFIG = new Config(0.004, 0.001, 0.02, 0.01);
+
+  private static final double DISCONNECT_TIMEOUT_SECS = 0.25;
+
+  /**
+   * CAN timing for a simulated device.
+   *
+   * @param latencySecs The mean delay between measuring and receiving a sample.
+   * @param jitterSecs The standard deviation of the delay.
+   * @param dropProbability The probability that a sample is never received.
+   * @param staleProbability The probability that a sample repeats the previous values.
+   */
+  public static record Config(
+      double latencySecs, double jitterSecs, double dropProbability, double staleProbability) {
+    public static final Config IDEAL = new Config(0.0, 0.0, 0.0, 0.0);
+  }
+
+  private final Config config;
+  private final int channelCount;
+  private final Random random = SimNoise.newRandom();
+  private final ArrayDeque<double[]> pending = new ArrayDeque<>(); // Arrival, measurement, values
+  private final double[] lastSubmittedValues;
+  private final double[] lastReceivedValues;
+  private boolean hasSubmitted = false;
+  private double lastArrivalTime = Double.NEGATIVE_INFINITY;
+  private double lastReceiveTime = Logger.getTimestamp() / 1.0e6;
+  private double latencySecs = 0.0;
+
+  /**
+   * Creates a new SimCANChannel.
+   *
+   * @param channelCount The number of values sent with each sample.
+   * @param config The CAN timing to apply.
+   */
+  public SimCANChannel(int channelCount, Config config) {
+    this.channelCount = channelCount;
+    this.config = config;
+    lastSubmittedValues = new double[channelCount];
+    lastReceivedValues = new double[channelCount];
+  }
+
+  /**
+   * Sends a sample. The values are copied, so the caller may reuse the array.
+   *
+   * @param measurementTime The time in seconds when the values were measured.
+   * @param values One value for each channel.
+   */
+  public void submit(double measurementTime, double[] values) {
+    // Drop or update the sample
+    if (random.nextDouble() < config.dropProbability()) {
+      return;
+    }
+    if (!hasSubmitted || random.nextDouble() >= config.staleProbability()) {
+      System.arraycopy(values, 0, lastSubmittedValues, 0, channelCount);
+      hasSubmitted = true;
+    }
+
+    // Frames from one device arrive in order
+    double delay =
+        Math.max(0.0, config.latencySecs() + random.nextGaussian() * config.jitterSecs());
+    double arrivalTime = Math.max(measurementTime + delay, lastArrivalTime);
+    lastArrivalTime = arrivalTime;
+
+    double[] entry = new double[channelCount + 2];
+    entry[0] = arrivalTime;
+    entry[1] = measurementTime;
+    System.arraycopy(lastSubmittedValues, 0, entry, 2, channelCount);
+    pending.add(entry);
+  }
+
+  /**
+   * Removes all samples that have arrived, oldest first.
+   *
+   * @param now The current time in seconds.
+   * @return The estimated timestamps at index 0, followed by one array for each channel.
+   */
+  public double[][] receive(double now) {
+    int count = 0;
+    for (double[] entry : pending) {
+      if (entry[0] > now) {
+        break;
+      }
+      count++;
+    }
+
+    double[][] samples = new double[channelCount + 1][count];
+    for (int i = 0; i < count; i++) {
+      double[] entry = pending.poll();
+      samples[0][i] = entry[0] - config.latencySecs();
+      for (int channel = 0; channel < channelCount; channel++) {
+        samples[channel + 1][i] = entry[channel + 2];
+      }
+      System.arraycopy(entry, 2, lastReceivedValues, 0, channelCount);
+      latencySecs = entry[0] - entry[1];
+      lastReceiveTime = entry[0];
+    }
+    return samples;
+  }
+
+  /** Returns the most recently received value for a channel. */
+  public double getValue(int channel) {
+    return lastReceivedValues[channel];
+  }
+
+  /** Returns the latency of the most recently received sample in seconds. */
+  public double getLatencySecs() {
+    return latencySecs;
+  }
+
+  /** Returns whether a sample has been received recently. */
+  public boolean isConnected(double now) {
+    return now - lastReceiveTime < DISCONNECT_TIMEOUT_SECS;
+  }
+}
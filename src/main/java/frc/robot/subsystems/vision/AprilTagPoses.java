@@ -0,0 +1,96 @@
+// Copyright (c) 2025 FRC Team 1466
+// https://github.com/FRC1466
+
+package frc.robot.subsystems.vision;
+
+import static frc.robot.subsystems.vision.VisionConstants.aprilTagLayout;
+
+import edu.wpi.first.apriltag.AprilTag;
+import edu.wpi.first.apriltag.AprilTagFieldLayout;
+import edu.wpi.first.math.geometry.Pose3d;
+import edu.wpi.first.math.geometry.Transform3d;
+
+/**
+ * Tag poses from {@link VisionConstants#aprilTagLayout}, stored in arrays indexed by tag ID. This
+ * avoids searching the layout for every lookup. The table is rebuilt automatically if the layout or
+ * its origin changes, and is safe to read from camera threads.
+ */
+final class AprilTagPoses {
+  private static volatile Table table = null;
+
+  private AprilTagPoses() {}
+
+  /**
+   * Returns the layout the tag poses were read from. Anything else that needs the field layout
+   * (such as the vision sim) should use this, so it agrees with the IDs accepted here.
+   */
+  public static AprilTagFieldLayout getLayout() {
+    return getTable().layout();
+  }
+
+  /** Returns whether a tag is in the layout. */
+  public static boolean contains(int id) {
+    return getPose(id) != null;
+  }
+
+  /** Returns the field-relative pose of a tag, or null if the tag is not in the layout. */
+  public static Pose3d getPose(int id) {
+    Pose3d[] poses = getTable().poses();
+    return id >= 0 && id < poses.length ? poses[id] : null;
+  }
+
+  /** Returns the transform from the field to a tag, or null if the tag is not in the layout. */
+  public static Transform3d getFieldToTag(int id) {
+    Transform3d[] fieldToTags = getTable().fieldToTags();
+    return id >= 0 && id < fieldToTags.length ? fieldToTags[id] : null;
+  }
+
+  /** Returns one more than the largest tag ID in the layout. IDs below this may be unused. */
+  public static int getIdLimit() {
+    return getTable().poses().length;
+  }
+
+  private static Table getTable() {
+    Table current = table;
+    if (current == null
+        || current.layout() != aprilTagLayout
+        || current.origin() != aprilTagLayout.getOrigin()) {
+      current = rebuild();
+    }
+    return current;
+  }
+
+  private static synchronized Table rebuild() {
+    AprilTagFieldLayout layout = aprilTagLayout;
+    Pose3d origin = layout.getOrigin();
+    Table current = table;
+    if (current != null && current.layout() == layout && current.origin() == origin) {
+      return current; // Already rebuilt by another thread
+    }
+
+    int idLimit = 0;
+    for (AprilTag tag : layout.getTags()) {
+      idLimit = Math.max(idLimit, tag.ID + 1);
+    }
+    Pose3d[] poses = new Pose3d[idLimit];
+    Transform3d[] fieldToTags = new Transform3d[idLimit];
+    for (AprilTag tag : layout.getTags()) {
+      if (tag.ID < 0) {
+        continue;
+      }
+      // Layout poses are relative to the origin, so look them up through the layout
+      Pose3d pose = layout.getTagPose(tag.ID).orElse(null);
+      if (pose != null) {
+        poses[tag.ID] = pose;
+        fieldToTags[tag.ID] = new Transform3d(pose.getTranslation(), pose.getRotation());
+      }
+    }
+
+    current = new Table(layout, origin, poses, fieldToTags);
+    table = current;
+    return current;
+  }
+
+  private record Table(
+      AprilTagFieldLayout layout, Pose3d origin, Pose3d[] poses, Transform3d[] fieldToTags) {}
+}
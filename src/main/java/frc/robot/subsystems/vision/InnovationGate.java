@@ -0,0 +1,120 @@
+// Copyright (c) 2025 FRC Team 1466
+// https://github.com/FRC1466
+
+package frc.robot.subsystems.vision;
+
+import static frc.robot.subsystems.vision.VisionConstants.gateChiSquared2Dof;
+import static frc.robot.subsystems.vision.VisionConstants.gateChiSquared3Dof;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Pose3d;
+import frc.robot.subsystems.vision.Vision.OdometryUncertainty;
+import frc.robot.subsystems.vision.Vision.PoseSampler;
+import java.util.Optional;
+import org.littletonrobotics.junction.Logger;
+
+/**
+ * Rejects vision poses that are inconsistent with odometry. The squared Mahalanobis distance
+ * between a vision pose and the odometry pose at the same timestamp is compared with a chi-squared
+ * threshold, using the sum of the odometry and vision variances for each axis. The odometry
+ * variance grows with the time since the last accepted pose, so a diverged odometry pose is
+ * eventually corrected. After a reset (such as when the odometry pose is reset), the odometry
+ * variance is unbounded and the next pose is accepted.
+ */
+class InnovationGate {
+  private final PoseSampler poseSampler;
+  private final OdometryUncertainty odometryUncertainty;
+  private long passedCount = 0;
+  private long rejectedCount = 0;
+  private double lastPassTimestamp = Double.NEGATIVE_INFINITY;
+  private double maxChiSquared = 0.0;
+
+  public InnovationGate(PoseSampler poseSampler, OdometryUncertainty odometryUncertainty) {
+    this.poseSampler = poseSampler;
+    this.odometryUncertainty = odometryUncertainty;
+  }
+
+  /**
+   * Returns whether a vision pose passes the gate, and records the result.
+   *
+   * @param visionPose The field-relative vision pose.
+   * @param timestamp The timestamp of the vision pose in seconds.
+   * @param linearStdDev The standard deviation of the vision pose translation in meters.
+   * @param angularStdDev The standard deviation of the vision pose rotation in radians, or infinity
+   *     if the pose has no rotation data.
+   */
+  public boolean test(
+      Pose3d visionPose, double timestamp, double linearStdDev, double angularStdDev) {
+    double chiSquared = getChiSquared(visionPose, timestamp, linearStdDev, angularStdDev);
+    maxChiSquared = Math.max(maxChiSquared, chiSquared);
+    double threshold = Double.isFinite(angularStdDev) ? gateChiSquared3Dof : gateChiSquared2Dof;
+    if (chiSquared <= threshold) {
+      passedCount++;
+      lastPassTimestamp = timestamp;
+      return true;
+    }
+    rejectedCount++;
+    return false;
+  }
+
+  /** Forgets the last accepted pose, so the next pose is accepted. */
+  public void reset() {
+    lastPassTimestamp = Double.NEGATIVE_INFINITY;
+  }
+
+  /** Returns the total number of poses that passed the gate. */
+  public long getPassedCount() {
+    return passedCount;
+  }
+
+  /** Returns the total number of poses that were rejected by the gate. */
+  public long getRejectedCount() {
+    return rejectedCount;
+  }
+
+  /** Records the gate statistics as outputs, then clears the maximum for the next cycle. */
+  public void log(String key) {
+    Logger.recordOutput(key + "/MaxChiSquared", maxChiSquared);
+    Logger.recordOutput(key + "/PassedCount", passedCount);
+    Logger.recordOutput(key + "/RejectedCount", rejectedCount);
+    maxChiSquared = 0.0;
+  }
+
+  /**
+   * Returns the squared Mahalanobis distance between a vision pose and the odometry pose at the
+   * same timestamp. Rotation is ignored if the vision pose has no rotation data. Returns zero if
+   * no pose has been accepted since the last reset, or if there is no odometry history.
+   */
+  private double getChiSquared(
+      Pose3d visionPose, double timestamp, double linearStdDev, double angularStdDev) {
+    if (lastPassTimestamp == Double.NEGATIVE_INFINITY) {
+      return 0.0;
+    }
+    Optional<Pose2d> odometryPose = poseSampler.sampleAt(timestamp);
+    if (odometryPose.isEmpty()) {
+      return 0.0;
+    }
+    double secsSinceCorrection = timestamp - lastPassTimestamp;
+    double dx = visionPose.getX() - odometryPose.get().getX();
+    double dy = visionPose.getY() - odometryPose.get().getY();
+    double xVariance =
+        square(odometryUncertainty.getStdDev(0, secsSinceCorrection)) + square(linearStdDev);
+    double yVariance =
+        square(odometryUncertainty.getStdDev(1, secsSinceCorrection)) + square(linearStdDev);
+    double chiSquared = dx * dx / xVariance + dy * dy / yVariance;
+    if (Double.isFinite(angularStdDev)) {
+      double dTheta =
+          MathUtil.angleModulus(
+              visionPose.getRotation().getZ() - odometryPose.get().getRotation().getRadians());
+      double thetaVariance =
+          square(odometryUncertainty.getStdDev(2, secsSinceCorrection)) + square(angularStdDev);
+      chiSquared += dTheta * dTheta / thetaVariance;
+    }
+    return chiSquared;
+  }
+
+  private static double square(double value) {
+    return value * value;
+  }
+}
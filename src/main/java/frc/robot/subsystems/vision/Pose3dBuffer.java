@@ -0,0 +1,51 @@
+// Copyright (c) 2025 FRC Team 1466
+// https://github.com/FRC1466
+
+package frc.robot.subsystems.vision;
+
+import edu.wpi.first.math.geometry.Pose3d;
+import java.util.Arrays;
+
+/**
+ * Reusable list of poses for logging. After warming up, adding poses and converting them to an
+ * exactly sized array for the logger does not allocate, since one array of each length is kept.
+ * The array returned by {@link #toArray()} is only valid until the next call on this buffer.
+ */
+class Pose3dBuffer {
+  private Pose3d[][] arraysByLength = new Pose3d[0][];
+  private Pose3d[] poses = new Pose3d[8];
+  private int size = 0;
+
+  /** Removes all poses. */
+  public void clear() {
+    size = 0;
+  }
+
+  /** Adds a pose. */
+  public void add(Pose3d pose) {
+    if (size == poses.length) {
+      poses = Arrays.copyOf(poses, poses.length * 2);
+    }
+    poses[size++] = pose;
+  }
+
+  /** Adds all poses from another buffer. */
+  public void addAll(Pose3dBuffer other) {
+    for (int i = 0; i < other.size; i++) {
+      add(other.poses[i]);
+    }
+  }
+
+  /** Returns the poses in a reused array of exactly the right length. */
+  public Pose3d[] toArray() {
+    if (size >= arraysByLength.length) {
+      arraysByLength = Arrays.copyOf(arraysByLength, Math.max(size + 1, arraysByLength.length * 2));
+    }
+    if (arraysByLength[size] == null) {
+      arraysByLength[size] = new Pose3d[size];
+    }
+    Pose3d[] array = arraysByLength[size];
+    System.arraycopy(poses, 0, array, 0, size);
+    return array;
+  }
+}
@@ -0,0 +1,106 @@
+// Copyright (c) 2025 FRC Team 1466
+// https://github.com/FRC1466
+
+package frc.robot.subsystems.vision;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Pose3d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Rotation3d;
+import edu.wpi.first.math.geometry.Transform3d;
+import edu.wpi.first.math.geometry.Translation3d;
+import frc.robot.subsystems.vision.VisionIO.PoseObservation;
+import frc.robot.subsystems.vision.VisionIO.PoseObservationType;
+import frc.robot.subsystems.vision.VisionIO.SingleTagObservation;
+
+/**
+ * Solves single tag observations for the robot pose. With an odometry heading, the heading picks
+ * whichever of the two tag solutions agrees with odometry, and the robot translation is solved with
+ * the heading fixed, so the ambiguous tag orientation no longer matters. The result is only
+ * trusted when the heading actually separates the solutions:
+ *
+ * <ul>
+ *   <li>If neither solution agrees with the heading, the full 3D solution is used instead, with
+ *       its ambiguity.
+ *   <li>If both solutions agree with the heading, the ambiguity is kept, so the ambiguity filter
+ *       still applies.
+ * </ul>
+ *
+ * <p>The solved height is not constrained, so a bad detection still shows up as a Z error.
+ */
+final class SingleTagSolver {
+  private SingleTagSolver() {}
+
+  /**
+   * Solves a single tag observation.
+   *
+   * @param tag The observation.
+   * @param fieldToTag The transform from the field to the observed tag.
+   * @param robotToCamera The transform from the robot to the camera.
+   * @param cameraToRobot The inverse of robotToCamera.
+   * @param heading The odometry heading at the observation timestamp, or null to use the full 3D
+   *     solution.
+   * @param maxHeadingError The largest difference in radians between a solution's heading and the
+   *     odometry heading for the solution to agree with odometry.
+   */
+  static PoseObservation solve(
+      SingleTagObservation tag,
+      Transform3d fieldToTag,
+      Transform3d robotToCamera,
+      Transform3d cameraToRobot,
+      Rotation2d heading,
+      double maxHeadingError) {
+    if (heading == null) {
+      return solve3d(tag, fieldToTag, cameraToRobot);
+    }
+
+    // Pick the solution that agrees with the heading
+    double bestError = getHeadingError(fieldToTag, tag.bestCameraToTag(), cameraToRobot, heading);
+    double altError = getHeadingError(fieldToTag, tag.altCameraToTag(), cameraToRobot, heading);
+    Transform3d cameraToTag = altError < bestError ? tag.altCameraToTag() : tag.bestCameraToTag();
+    if (Math.min(bestError, altError) > maxHeadingError) {
+      return solve3d(tag, fieldToTag, cameraToRobot); // Odometry disagrees with both solutions
+    }
+    double ambiguity = Math.max(bestError, altError) > maxHeadingError ? 0.0 : tag.ambiguity();
+
+    // Solve for the robot translation with the heading fixed
+    Rotation3d robotRotation = new Rotation3d(0.0, 0.0, heading.getRadians());
+    Rotation3d cameraRotation = robotToCamera.getRotation().rotateBy(robotRotation);
+    Translation3d cameraTranslation =
+        fieldToTag.getTranslation().minus(cameraToTag.getTranslation().rotateBy(cameraRotation));
+    Translation3d robotTranslation =
+        cameraTranslation.minus(robotToCamera.getTranslation().rotateBy(robotRotation));
+
+    return new PoseObservation(
+        tag.timestamp(), // Timestamp
+        new Pose3d(robotTranslation, robotRotation), // 3D pose estimate
+        ambiguity, // Ambiguity (zero when resolved by heading)
+        1, // Tag count
+        cameraToTag.getTranslation().getNorm(), // Average tag distance
+        PoseObservationType.MEGATAG_2); // Observation type
+  }
+
+  /** Returns the full 3D solution from the best tag solution. */
+  private static PoseObservation solve3d(
+      SingleTagObservation tag, Transform3d fieldToTag, Transform3d cameraToRobot) {
+    Transform3d fieldToRobot = fieldToTag.plus(tag.bestCameraToTag().inverse()).plus(cameraToRobot);
+    return new PoseObservation(
+        tag.timestamp(), // Timestamp
+        new Pose3d(fieldToRobot.getTranslation(), fieldToRobot.getRotation()), // 3D pose estimate
+        tag.ambiguity(), // Ambiguity
+        1, // Tag count
+        tag.bestCameraToTag().getTranslation().getNorm(), // Average tag distance
+        PoseObservationType.PHOTONVISION); // Observation type
+  }
+
+  /** Returns the absolute difference between a tag solution's robot heading and a heading. */
+  private static double getHeadingError(
+      Transform3d fieldToTag,
+      Transform3d cameraToTag,
+      Transform3d cameraToRobot,
+      Rotation2d heading) {
+    Transform3d fieldToRobot = fieldToTag.plus(cameraToTag.inverse()).plus(cameraToRobot);
+    return Math.abs(
+        MathUtil.angleModulus(fieldToRobot.getRotation().getZ() - heading.getRadians()));
+  }
+}
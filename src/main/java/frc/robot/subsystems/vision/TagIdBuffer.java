@@ -0,0 +1,60 @@
+// Copyright (c) 2025 FRC Team 1466
+// https://github.com/FRC1466
+
+package frc.robot.subsystems.vision;
+
+import java.util.Arrays;
+
+/**
+ * Reusable set of tag IDs for building inputs. Duplicates are skipped using a flag array indexed by
+ * ID, so adding IDs does not box or allocate after warming up. IDs that are not in the AprilTag
+ * layout (including unused IDs between layout tags) are skipped, so a corrupt ID can't grow the
+ * array.
+ */
+class TagIdBuffer {
+  private static final int[] EMPTY = new int[0];
+
+  private boolean[] seen = new boolean[32];
+  private int[] ids = new int[16];
+  private int size = 0;
+
+  /** Removes all tag IDs. */
+  public void clear() {
+    for (int i = 0; i < size; i++) {
+      seen[ids[i]] = false;
+    }
+    size = 0;
+  }
+
+  /** Returns whether a value decoded from a coprocessor is an integer ID in the tag layout. */
+  public static boolean isValidId(double value) {
+    // Also false for NaN and infinity, so the value can be safely cast to an int
+    return value >= 0.0
+        && value < AprilTagPoses.getIdLimit()
+        && value == Math.rint(value)
+        && AprilTagPoses.contains((int) value);
+  }
+
+  /** Adds a tag ID if it is in the tag layout and has not already been added. */
+  public void add(int id) {
+    if (!AprilTagPoses.contains(id)) {
+      return;
+    }
+    if (id >= seen.length) {
+      seen = Arrays.copyOf(seen, id + 1);
+    }
+    if (seen[id]) {
+      return;
+    }
+    seen[id] = true;
+    if (size == ids.length) {
+      ids = Arrays.copyOf(ids, ids.length * 2);
+    }
+    ids[size++] = id;
+  }
+
+  /** Returns a new array of the tag IDs, in the order they were added. */
+  public int[] toArray() {
+    return size == 0 ? EMPTY : Arrays.copyOf(ids, size);
+  }
+}
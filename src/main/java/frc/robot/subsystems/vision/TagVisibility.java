@@ -0,0 +1,153 @@
+// Copyright (c) 2025 FRC Team 1466
+// https://github.com/FRC1466
+
+package frc.robot.subsystems.vision;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Pose3d;
+import edu.wpi.first.math.geometry.Quaternion;
+import edu.wpi.first.math.geometry.Transform3d;
+
+/** Geometric checks for whether a camera can see AprilTags, without rendering or detection. */
+final class TagVisibility {
+  private TagVisibility() {}
+
+  /**
+   * Field-relative camera position and rotation matrix, stored as primitives so that a camera can
+   * be checked against every tag without creating geometry objects. Reuse one instance per caller.
+   */
+  static final class CameraFrame {
+    private double x;
+    private double y;
+    private double z;
+    private final double[] rotation = new double[9]; // Row-major, camera to field
+
+    /** Sets the frame from a field-relative camera pose. */
+    CameraFrame set(Pose3d cameraPose) {
+      x = cameraPose.getX();
+      y = cameraPose.getY();
+      z = cameraPose.getZ();
+      setRotationMatrix(cameraPose.getRotation().getQuaternion(), rotation);
+      return this;
+    }
+
+    /** Sets the frame from a robot pose on the floor and the camera position on the robot. */
+    CameraFrame set(Pose2d robotPose, Transform3d robotToCamera) {
+      double cos = robotPose.getRotation().getCos();
+      double sin = robotPose.getRotation().getSin();
+      double tx = robotToCamera.getX();
+      double ty = robotToCamera.getY();
+      x = robotPose.getX() + cos * tx - sin * ty;
+      y = robotPose.getY() + sin * tx + cos * ty;
+      z = robotToCamera.getZ();
+
+      // Rotate the robot to camera rotation by the robot heading
+      setRotationMatrix(robotToCamera.getRotation().getQuaternion(), rotation);
+      for (int column = 0; column < 3; column++) {
+        double row0 = rotation[column];
+        double row1 = rotation[3 + column];
+        rotation[column] = cos * row0 - sin * row1;
+        rotation[3 + column] = sin * row0 + cos * row1;
+      }
+      return this;
+    }
+  }
+
+  /**
+   * Returns whether a tag is within the range and field of view of a camera, and faces it.
+   *
+   * @param cameraPose The field-relative camera pose.
+   * @param tagPose The field-relative tag pose.
+   * @param horizontalFov The full horizontal field of view in radians.
+   * @param verticalFov The full vertical field of view in radians.
+   * @param maxRange The maximum detection distance in meters.
+   * @param maxViewAngle The maximum angle between the tag normal and the camera in radians.
+   */
+  public static boolean isVisible(
+      Pose3d cameraPose,
+      Pose3d tagPose,
+      double horizontalFov,
+      double verticalFov,
+      double maxRange,
+      double maxViewAngle) {
+    return isVisible(
+        new CameraFrame().set(cameraPose),
+        tagPose,
+        horizontalFov,
+        verticalFov,
+        maxRange,
+        maxViewAngle);
+  }
+
+  /** Returns whether a tag is visible from a camera frame, using the same checks as isVisible. */
+  static boolean isVisible(
+      CameraFrame camera,
+      Pose3d tagPose,
+      double horizontalFov,
+      double verticalFov,
+      double maxRange,
+      double maxViewAngle) {
+    // Find the tag in camera coordinates (multiply by the transposed camera rotation)
+    double[] r = camera.rotation;
+    double dx = tagPose.getX() - camera.x;
+    double dy = tagPose.getY() - camera.y;
+    double dz = tagPose.getZ() - camera.z;
+    double cameraX = r[0] * dx + r[3] * dy + r[6] * dz;
+    double cameraY = r[1] * dx + r[4] * dy + r[7] * dz;
+    double cameraZ = r[2] * dx + r[5] * dy + r[8] * dz;
+
+    // Check range and field of view
+    double distance = Math.sqrt(dx * dx + dy * dy + dz * dz);
+    if (distance > maxRange || cameraX <= 0.0) {
+      return false;
+    }
+    double yaw = Math.atan2(cameraY, cameraX);
+    double pitch = Math.atan2(cameraZ, Math.hypot(cameraX, cameraY));
+    if (Math.abs(yaw) > horizontalFov / 2.0 || Math.abs(pitch) > verticalFov / 2.0) {
+      return false;
+    }
+
+    // Check that the tag faces the camera (the normal is the first column of the tag rotation)
+    Quaternion q = tagPose.getRotation().getQuaternion();
+    double normalX = 1.0 - 2.0 * (q.getY() * q.getY() + q.getZ() * q.getZ());
+    double normalY = 2.0 * (q.getX() * q.getY() + q.getW() * q.getZ());
+    double normalZ = 2.0 * (q.getX() * q.getZ() - q.getW() * q.getY());
+    double facing = -(normalX * dx + normalY * dy + normalZ * dz);
+    return facing >= Math.cos(maxViewAngle) * distance;
+  }
+
+  /** Returns whether any tag in the layout is visible, using the same checks as isVisible. */
+  public static boolean isAnyVisible(
+      CameraFrame camera,
+      double horizontalFov,
+      double verticalFov,
+      double maxRange,
+      double maxViewAngle) {
+    int idLimit = AprilTagPoses.getIdLimit();
+    for (int id = 0; id < idLimit; id++) {
+      Pose3d tagPose = AprilTagPoses.getPose(id);
+      if (tagPose != null
+          && isVisible(camera, tagPose, horizontalFov, verticalFov, maxRange, maxViewAngle)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** Writes the row-major rotation matrix of a unit quaternion. */
+  private static void setRotationMatrix(Quaternion q, double[] matrix) {
+    double w = q.getW();
+    double x = q.getX();
+    double y = q.getY();
+    double z = q.getZ();
+    matrix[0] = 1.0 - 2.0 * (y * y + z * z);
+    matrix[1] = 2.0 * (x * y - w * z);
+    matrix[2] = 2.0 * (x * z + w * y);
+    matrix[3] = 2.0 * (x * y + w * z);
+    matrix[4] = 1.0 - 2.0 * (x * x + z * z);
+    matrix[5] = 2.0 * (y * z - w * x);
+    matrix[6] = 2.0 * (x * z - w * y);
+    matrix[7] = 2.0 * (y * z + w * x);
+    matrix[8] = 1.0 - 2.0 * (x * x + y * y);
+  }
+}
@@ -16,29 +16,72 @@ package frc.robot.subsystems.vision;
 import static frc.robot.subsystems.vision.VisionConstants.*;
 
 import edu.wpi.first.math.Matrix;
-import edu.wpi.first.math.VecBuilder;
 import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Pose3d;
 import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Transform3d;
 import edu.wpi.first.math.numbers.N1;
 import edu.wpi.first.math.numbers.N3;
 import edu.wpi.first.wpilibj.Alert;
 import edu.wpi.first.wpilibj.Alert.AlertType;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
+import frc.robot.subsystems.vision.VisionIO.PoseObservation;
 import frc.robot.subsystems.vision.VisionIO.PoseObservationType;
-import java.util.LinkedList;
-import java.util.List;
+import frc.robot.subsystems.vision.VisionIO.SingleTagObservation;
+import java.util.Optional;
 import org.littletonrobotics.junction.Logger;
 
 public class Vision extends SubsystemBase {
   private final VisionConsumer consumer;
+  private final PoseSampler poseSampler;
   private final VisionIO[] io;
+  private final Transform3d[] cameraToRobots;
   private final VisionIOInputsAutoLogged[] inputs;
   private final Alert[] disconnectedAlerts;
+  private final VisionCameraMetrics[] metrics;
 
-  public Vision(VisionConsumer consumer, VisionIO... io) {
+  // Pipeline throttling
+  private final double[] lastVisibleTimestamps;
+  private final String[] throttledKeys;
+  private final TagVisibility.CameraFrame throttleCameraFrame = new TagVisibility.CameraFrame();
+  private double lastAcceptedTimestamp = Double.NEGATIVE_INFINITY;
+
+  // Logging keys and buffers, reused every loop
+  private final String[] inputsKeys;
+  private final String[] tagPosesKeys;
+  private final String[] robotPosesKeys;
+  private final String[] robotPosesAcceptedKeys;
+  private final String[] robotPosesRejectedKeys;
+  private final Pose3dBuffer tagPoses = new Pose3dBuffer();
+  private final Pose3dBuffer robotPoses = new Pose3dBuffer();
+  private final Pose3dBuffer robotPosesAccepted = new Pose3dBuffer();
+  private final Pose3dBuffer robotPosesRejected = new Pose3dBuffer();
+  private final Pose3dBuffer allTagPoses = new Pose3dBuffer();
+  private final Pose3dBuffer allRobotPoses = new Pose3dBuffer();
+  private final Pose3dBuffer allRobotPosesAccepted = new Pose3dBuffer();
+  private final Pose3dBuffer allRobotPosesRejected = new Pose3dBuffer();
+  private final VisionFuser fuser = new VisionFuser();
+
+  private final InnovationGate gate;
+
+  public Vision(
+      VisionConsumer consumer,
+      PoseSampler poseSampler,
+      OdometryUncertainty odometryUncertainty,
+      VisionIO... io) {
     this.consumer = consumer;
+    this.poseSampler = poseSampler;
     this.io = io;
+    this.gate = new InnovationGate(poseSampler, odometryUncertainty);
+
+    // Initialize camera transforms, for solving single tag observations
+    this.cameraToRobots = new Transform3d[io.length];
+    for (int i = 0; i < io.length; i++) {
+      Transform3d robotToCamera = io[i].getRobotToCamera();
+      cameraToRobots[i] = robotToCamera != null ? robotToCamera.inverse() : null;
+    }
 
     // Initialize inputs
     this.inputs = new VisionIOInputsAutoLogged[io.length];
@@ -53,6 +96,42 @@ public class Vision extends SubsystemBase {
           new Alert(
               "Vision camera " + Integer.toString(i) + " is disconnected.", AlertType.kWarning);
     }
+
+    // Initialize metrics
+    this.metrics = new VisionCameraMetrics[io.length];
+    for (int i = 0; i < io.length; i++) {
+      metrics[i] = new VisionCameraMetrics("Vision/Camera" + Integer.toString(i) + "/Metrics");
+    }
+
+    // Initialize pipeline throttling
+    lastVisibleTimestamps = new double[io.length];
+    throttledKeys = new String[io.length];
+    for (int i = 0; i < io.length; i++) {
+      lastVisibleTimestamps[i] = Double.NEGATIVE_INFINITY;
+      throttledKeys[i] = "Vision/Camera" + Integer.toString(i) + "/Throttled";
+    }
+
+    // Initialize logging keys
+    inputsKeys = new String[io.length];
+    tagPosesKeys = new String[io.length];
+    robotPosesKeys = new String[io.length];
+    robotPosesAcceptedKeys = new String[io.length];
+    robotPosesRejectedKeys = new String[io.length];
+    for (int i = 0; i < io.length; i++) {
+      inputsKeys[i] = "Vision/Camera" + Integer.toString(i);
+      tagPosesKeys[i] = inputsKeys[i] + "/TagPoses";
+      robotPosesKeys[i] = inputsKeys[i] + "/RobotPoses";
+      robotPosesAcceptedKeys[i] = inputsKeys[i] + "/RobotPosesAccepted";
+      robotPosesRejectedKeys[i] = inputsKeys[i] + "/RobotPosesRejected";
+    }
+  }
+
+  /**
+   * Resets the innovation gate, so the next observation is accepted regardless of odometry. Call
+   * this when the odometry pose is reset.
+   */
+  public void resetGate() {
+    gate.reset();
   }
 
   /**
@@ -68,14 +147,16 @@ public class Vision extends SubsystemBase {
   public void periodic() {
     for (int i = 0; i < io.length; i++) {
       io[i].updateInputs(inputs[i]);
-      Logger.processInputs("Vision/Camera" + Integer.toString(i), inputs[i]);
+      Logger.processInputs(inputsKeys[i], inputs[i]);
     }
 
     // Initialize logging values
-    List<Pose3d> allTagPoses = new LinkedList<>();
-    List<Pose3d> allRobotPoses = new LinkedList<>();
-    List<Pose3d> allRobotPosesAccepted = new LinkedList<>();
-    List<Pose3d> allRobotPosesRejected = new LinkedList<>();
+    double timestamp = Timer.getTimestamp();
+    fuser.clear();
+    allTagPoses.clear();
+    allRobotPoses.clear();
+    allRobotPosesAccepted.clear();
+    allRobotPosesRejected.clear();
 
     // Loop over cameras
     for (int cameraIndex = 0; cameraIndex < io.length; cameraIndex++) {
@@ -83,99 +164,212 @@ public class Vision extends SubsystemBase {
       disconnectedAlerts[cameraIndex].set(!inputs[cameraIndex].connected);
 
       // Initialize logging values
-      List<Pose3d> tagPoses = new LinkedList<>();
-      List<Pose3d> robotPoses = new LinkedList<>();
-      List<Pose3d> robotPosesAccepted = new LinkedList<>();
-      List<Pose3d> robotPosesRejected = new LinkedList<>();
+      tagPoses.clear();
+      robotPoses.clear();
+      robotPosesAccepted.clear();
+      robotPosesRejected.clear();
 
       // Add tag poses
       for (int tagId : inputs[cameraIndex].tagIds) {
-        var tagPose = aprilTagLayout.getTagPose(tagId);
-        if (tagPose.isPresent()) {
-          tagPoses.add(tagPose.get());
+        Pose3d tagPose = AprilTagPoses.getPose(tagId);
+        if (tagPose != null) {
+          tagPoses.add(tagPose);
         }
       }
 
       // Loop over pose observations
       for (var observation : inputs[cameraIndex].poseObservations) {
-        // Check whether to reject pose
-        boolean rejectPose =
-            observation.tagCount() == 0 // Must have at least one tag
-                || (observation.tagCount() == 1
-                    && observation.ambiguity() > maxAmbiguity) // Cannot be high ambiguity
-                || Math.abs(observation.pose().getZ())
-                    > maxZError // Must have realistic Z coordinate
-
-                // Must be within the field boundaries
-                || observation.pose().getX() < 0.0
-                || observation.pose().getX() > aprilTagLayout.getFieldLength()
-                || observation.pose().getY() < 0.0
-                || observation.pose().getY() > aprilTagLayout.getFieldWidth();
-
-        // Add pose to log
-        robotPoses.add(observation.pose());
-        if (rejectPose) {
-          robotPosesRejected.add(observation.pose());
-        } else {
-          robotPosesAccepted.add(observation.pose());
-        }
-
-        // Skip if rejected
-        if (rejectPose) {
-          continue;
-        }
-
-        // Calculate standard deviations
-        double stdDevFactor =
-            Math.pow(observation.averageTagDistance(), 2.0) / observation.tagCount();
-        double linearStdDev = linearStdDevBaseline * stdDevFactor;
-        double angularStdDev = angularStdDevBaseline * stdDevFactor;
-        if (observation.type() == PoseObservationType.MEGATAG_2) {
-          linearStdDev *= linearStdDevMegatag2Factor;
-          angularStdDev *= angularStdDevMegatag2Factor;
-        }
-        if (cameraIndex < cameraStdDevFactors.length) {
-          linearStdDev *= cameraStdDevFactors[cameraIndex];
-          angularStdDev *= cameraStdDevFactors[cameraIndex];
+        processObservation(cameraIndex, observation, timestamp);
+      }
+      for (var singleTagObservation : inputs[cameraIndex].singleTagObservations) {
+        PoseObservation observation = solveSingleTag(cameraIndex, singleTagObservation);
+        if (observation != null) {
+          processObservation(cameraIndex, observation, timestamp);
         }
-
-        // Send vision observation
-        consumer.accept(
-            observation.pose().toPose2d(),
-            observation.timestamp(),
-            VecBuilder.fill(linearStdDev, linearStdDev, angularStdDev));
       }
 
-      // Log camera datadata
-      Logger.recordOutput(
-          "Vision/Camera" + Integer.toString(cameraIndex) + "/TagPoses",
-          tagPoses.toArray(new Pose3d[tagPoses.size()]));
-      Logger.recordOutput(
-          "Vision/Camera" + Integer.toString(cameraIndex) + "/RobotPoses",
-          robotPoses.toArray(new Pose3d[robotPoses.size()]));
-      Logger.recordOutput(
-          "Vision/Camera" + Integer.toString(cameraIndex) + "/RobotPosesAccepted",
-          robotPosesAccepted.toArray(new Pose3d[robotPosesAccepted.size()]));
-      Logger.recordOutput(
-          "Vision/Camera" + Integer.toString(cameraIndex) + "/RobotPosesRejected",
-          robotPosesRejected.toArray(new Pose3d[robotPosesRejected.size()]));
+      // Log camera data
+      Logger.recordOutput(tagPosesKeys[cameraIndex], tagPoses.toArray());
+      Logger.recordOutput(robotPosesKeys[cameraIndex], robotPoses.toArray());
+      Logger.recordOutput(robotPosesAcceptedKeys[cameraIndex], robotPosesAccepted.toArray());
+      Logger.recordOutput(robotPosesRejectedKeys[cameraIndex], robotPosesRejected.toArray());
       allTagPoses.addAll(tagPoses);
       allRobotPoses.addAll(robotPoses);
       allRobotPosesAccepted.addAll(robotPosesAccepted);
       allRobotPosesRejected.addAll(robotPosesRejected);
+      metrics[cameraIndex].update(
+          timestamp, inputs[cameraIndex].frameCount, inputs[cameraIndex].latencySecs);
     }
 
+    // Throttle cameras that can't see tags
+    updateThrottling(timestamp);
+
+    // Send fused vision observations (the consumer copies the standard deviations)
+    int measurementCount = fuser.fuse(fusionWindowSecs, poseSampler, consumer);
+
     // Log summary data
-    Logger.recordOutput(
-        "Vision/Summary/TagPoses", allTagPoses.toArray(new Pose3d[allTagPoses.size()]));
-    Logger.recordOutput(
-        "Vision/Summary/RobotPoses", allRobotPoses.toArray(new Pose3d[allRobotPoses.size()]));
-    Logger.recordOutput(
-        "Vision/Summary/RobotPosesAccepted",
-        allRobotPosesAccepted.toArray(new Pose3d[allRobotPosesAccepted.size()]));
-    Logger.recordOutput(
-        "Vision/Summary/RobotPosesRejected",
-        allRobotPosesRejected.toArray(new Pose3d[allRobotPosesRejected.size()]));
+    Logger.recordOutput("Vision/Summary/TagPoses", allTagPoses.toArray());
+    Logger.recordOutput("Vision/Summary/RobotPoses", allRobotPoses.toArray());
+    Logger.recordOutput("Vision/Summary/RobotPosesAccepted", allRobotPosesAccepted.toArray());
+    Logger.recordOutput("Vision/Summary/RobotPosesRejected", allRobotPosesRejected.toArray());
+    Logger.recordOutput("Vision/Summary/MeasurementCount", measurementCount);
+    gate.log("Vision/Gate");
+  }
+
+  /**
+   * Checks a pose observation, logs it, and saves it to fuse with other cameras if it is accepted.
+   */
+  private void processObservation(int cameraIndex, PoseObservation observation, double timestamp) {
+    // Check whether to reject pose
+    RejectReason rejectReason = getRejectReason(observation);
+
+    // Calculate standard deviations
+    double stdDevFactor = Math.pow(observation.averageTagDistance(), 2.0) / observation.tagCount();
+    double linearStdDev = linearStdDevBaseline * stdDevFactor;
+    double angularStdDev = angularStdDevBaseline * stdDevFactor;
+    if (observation.type() == PoseObservationType.MEGATAG_2) {
+      linearStdDev *= linearStdDevMegatag2Factor;
+      angularStdDev *= angularStdDevMegatag2Factor;
+    }
+    if (cameraIndex < cameraStdDevFactors.length) {
+      linearStdDev *= cameraStdDevFactors[cameraIndex];
+      angularStdDev *= cameraStdDevFactors[cameraIndex];
+    }
+
+    // Check whether the pose is consistent with odometry
+    Pose3d visionPose = observation.pose();
+    if (rejectReason == null
+        && !gate.test(visionPose, observation.timestamp(), linearStdDev, angularStdDev)) {
+      rejectReason = RejectReason.INNOVATION_GATE;
+    }
+    boolean rejectPose = rejectReason != null;
+    if (!rejectPose) {
+      lastAcceptedTimestamp = timestamp;
+    }
+    metrics[cameraIndex].addObservation(timestamp - observation.timestamp(), rejectReason);
+
+    // Add pose to log
+    robotPoses.add(observation.pose());
+    if (rejectPose) {
+      robotPosesRejected.add(observation.pose());
+    } else {
+      robotPosesAccepted.add(observation.pose());
+    }
+
+    // Skip if rejected
+    if (rejectPose) {
+      return;
+    }
+
+    // Save vision observation to fuse with other cameras
+    fuser.add(
+        cameraIndex,
+        visionPose.getX(),
+        visionPose.getY(),
+        visionPose.getRotation().getZ(),
+        observation.timestamp(),
+        linearStdDev,
+        angularStdDev);
+  }
+
+  /**
+   * Solves a single tag observation for the robot pose, fixing the heading to the odometry heading
+   * at the frame timestamp when enabled and available (see {@link SingleTagSolver}). Returns null
+   * if the tag or camera position is unknown.
+   */
+  private PoseObservation solveSingleTag(int cameraIndex, SingleTagObservation tag) {
+    Transform3d fieldToTag = AprilTagPoses.getFieldToTag(tag.tagId());
+    Transform3d cameraToRobot = cameraToRobots[cameraIndex];
+    if (fieldToTag == null || cameraToRobot == null) {
+      return null;
+    }
+    Optional<Pose2d> odometryPose =
+        solveSingleTagWithHeading ? poseSampler.sampleAt(tag.timestamp()) : Optional.empty();
+    return SingleTagSolver.solve(
+        tag,
+        fieldToTag,
+        io[cameraIndex].getRobotToCamera(),
+        cameraToRobot,
+        odometryPose.isPresent() ? odometryPose.get().getRotation() : null,
+        singleTagMaxHeadingError);
+  }
+
+  /**
+   * Disables pose processing on cameras that are predicted to see no tags from the current pose for
+   * a short time, and enables it again as soon as a tag may be visible. Cameras are only throttled
+   * while enabled with a recent accepted observation, so that a wrong pose can't turn off the
+   * cameras needed to correct it.
+   */
+  private void updateThrottling(double timestamp) {
+    Optional<Pose2d> robotPose =
+        enablePipelineThrottling
+                && DriverStation.isEnabled()
+                && timestamp - lastAcceptedTimestamp < throttleMaxPoseAgeSecs
+            ? poseSampler.sampleAt(timestamp)
+            : Optional.empty();
+    for (int i = 0; i < io.length; i++) {
+      Transform3d robotToCamera = io[i].getRobotToCamera();
+      boolean visible = robotPose.isEmpty() || robotToCamera == null;
+      if (!visible) {
+        throttleCameraFrame.set(robotPose.get(), robotToCamera);
+        visible =
+            TagVisibility.isAnyVisible(
+                throttleCameraFrame,
+                throttleHorizontalFov,
+                throttleVerticalFov,
+                throttleMaxRange,
+                throttleMaxViewAngle);
+      }
+      if (visible) {
+        lastVisibleTimestamps[i] = timestamp;
+      }
+      boolean enabled = timestamp - lastVisibleTimestamps[i] < throttleDelaySecs;
+      io[i].setPipelineEnabled(enabled);
+      Logger.recordOutput(throttledKeys[i], !enabled);
+    }
+  }
+
+  /** Returns why an observation fails the basic checks, or null if it passes. */
+  private static RejectReason getRejectReason(PoseObservation observation) {
+    if (observation.tagCount() == 0) {
+      return RejectReason.NO_TAGS; // Must have at least one tag
+    }
+    if (observation.tagCount() == 1 && observation.ambiguity() > maxAmbiguity) {
+      return RejectReason.AMBIGUITY; // Cannot be high ambiguity
+    }
+    if (Math.abs(observation.pose().getZ()) > maxZError) {
+      return RejectReason.Z_ERROR; // Must have realistic Z coordinate
+    }
+    if (observation.pose().getX() < 0.0
+        || observation.pose().getX() > aprilTagLayout.getFieldLength()
+        || observation.pose().getY() < 0.0
+        || observation.pose().getY() > aprilTagLayout.getFieldWidth()) {
+      return RejectReason.OUT_OF_FIELD; // Must be within the field boundaries
+    }
+    return null;
+  }
+
+  /** Reasons for rejecting a pose observation. */
+  static enum RejectReason {
+    NO_TAGS,
+    AMBIGUITY,
+    Z_ERROR,
+    OUT_OF_FIELD,
+    INNOVATION_GATE
+  }
+
+  @FunctionalInterface
+  public static interface PoseSampler {
+    public Optional<Pose2d> sampleAt(double timestampSeconds);
+  }
+
+  @FunctionalInterface
+  public static interface OdometryUncertainty {
+    /**
+     * Returns the standard deviation of the odometry pose along one axis (0 = x, 1 = y, 2 = theta)
+     * after a time without vision corrections.
+     */
+    public double getStdDev(int axis, double secsSinceCorrection);
   }
 
   @FunctionalInterface
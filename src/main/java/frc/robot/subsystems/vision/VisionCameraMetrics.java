@@ -0,0 +1,134 @@
+// Copyright (c) 2025 FRC Team 1466
+// https://github.com/FRC1466
+
+package frc.robot.subsystems.vision;
+
+import frc.robot.subsystems.vision.Vision.RejectReason;
+import org.littletonrobotics.junction.Logger;
+
+/**
+ * Throughput and latency metrics for one camera. Observations are accumulated as they are
+ * processed, and the metrics are logged once per period to keep logging overhead low. Rates, ages,
+ * and latencies cover the last period, while accept and reject counts are totals.
+ *
+ * <p>The frame rate and pipeline latency come from the frame count and latency in the camera
+ * inputs, so they include frames without tags. The observation rate only counts pose observations.
+ */
+class VisionCameraMetrics {
+  private static final double PERIOD_SECS = 1.0;
+  private static final RejectReason[] REJECT_REASONS = RejectReason.values();
+
+  // Logging keys
+  private final String frameRateKey;
+  private final String averageLatencyKey;
+  private final String maxLatencyKey;
+  private final String observationRateKey;
+  private final String averageAgeKey;
+  private final String maxAgeKey;
+  private final String acceptedCountKey;
+  private final String[] rejectedCountKeys;
+
+  private double periodStartTimestamp = Double.NaN;
+  private long lastFrameCount = -1;
+  private long periodFrameCount = 0;
+  private int periodLatencySampleCount = 0;
+  private double periodTotalLatencySecs = 0.0;
+  private double periodMaxLatencySecs = 0.0;
+  private int periodObservationCount = 0;
+  private double periodTotalAgeSecs = 0.0;
+  private double periodMaxAgeSecs = 0.0;
+  private long acceptedCount = 0;
+  private final long[] rejectedCounts = new long[REJECT_REASONS.length];
+
+  /**
+   * Creates a new VisionCameraMetrics.
+   *
+   * @param key The logging key for this camera's metrics.
+   */
+  public VisionCameraMetrics(String key) {
+    frameRateKey = key + "/FrameRate";
+    averageLatencyKey = key + "/AverageLatencyMS";
+    maxLatencyKey = key + "/MaxLatencyMS";
+    observationRateKey = key + "/ObservationRate";
+    averageAgeKey = key + "/AverageAgeMS";
+    maxAgeKey = key + "/MaxAgeMS";
+    acceptedCountKey = key + "/AcceptedCount";
+    rejectedCountKeys = new String[REJECT_REASONS.length];
+    for (RejectReason reason : REJECT_REASONS) {
+      rejectedCountKeys[reason.ordinal()] = key + "/RejectedCount/" + reason.name();
+    }
+  }
+
+  /**
+   * Records a processed observation.
+   *
+   * @param ageSecs The time from capture until the observation was processed.
+   * @param rejectReason The reason the observation was rejected, or null if accepted.
+   */
+  public void addObservation(double ageSecs, RejectReason rejectReason) {
+    periodObservationCount++;
+    periodTotalAgeSecs += ageSecs;
+    periodMaxAgeSecs = Math.max(periodMaxAgeSecs, ageSecs);
+    if (rejectReason == null) {
+      acceptedCount++;
+    } else {
+      rejectedCounts[rejectReason.ordinal()]++;
+    }
+  }
+
+  /**
+   * Records the camera's frames since the last call, and logs the metrics if a period has passed
+   * since they were last logged. The latency is sampled once for each call with new frames.
+   *
+   * @param timestamp The current timestamp.
+   * @param frameCount The total number of frames processed by the camera.
+   * @param latencySecs The pipeline latency of the camera's latest frame.
+   */
+  public void update(double timestamp, long frameCount, double latencySecs) {
+    // Count new frames (the count restarts if the camera reboots)
+    long newFrameCount =
+        lastFrameCount < 0 || frameCount < lastFrameCount ? 0 : frameCount - lastFrameCount;
+    lastFrameCount = frameCount;
+    if (newFrameCount > 0) {
+      periodFrameCount += newFrameCount;
+      periodLatencySampleCount++;
+      periodTotalLatencySecs += latencySecs;
+      periodMaxLatencySecs = Math.max(periodMaxLatencySecs, latencySecs);
+    }
+
+    if (Double.isNaN(periodStartTimestamp)) {
+      periodStartTimestamp = timestamp;
+      return;
+    }
+    double periodSecs = timestamp - periodStartTimestamp;
+    if (periodSecs < PERIOD_SECS) {
+      return;
+    }
+
+    Logger.recordOutput(frameRateKey, periodFrameCount / periodSecs);
+    Logger.recordOutput(
+        averageLatencyKey,
+        periodLatencySampleCount > 0
+            ? periodTotalLatencySecs / periodLatencySampleCount * 1000.0
+            : 0.0);
+    Logger.recordOutput(maxLatencyKey, periodMaxLatencySecs * 1000.0);
+    Logger.recordOutput(observationRateKey, periodObservationCount / periodSecs);
+    Logger.recordOutput(
+        averageAgeKey,
+        periodObservationCount > 0 ? periodTotalAgeSecs / periodObservationCount * 1000.0 : 0.0);
+    Logger.recordOutput(maxAgeKey, periodMaxAgeSecs * 1000.0);
+    Logger.recordOutput(acceptedCountKey, acceptedCount);
+    for (int i = 0; i < rejectedCounts.length; i++) {
+      Logger.recordOutput(rejectedCountKeys[i], rejectedCounts[i]);
+    }
+
+    periodStartTimestamp = timestamp;
+    periodFrameCount = 0;
+    periodLatencySampleCount = 0;
+    periodTotalLatencySecs = 0.0;
+    periodMaxLatencySecs = 0.0;
+    periodObservationCount = 0;
+    periodTotalAgeSecs = 0.0;
+    periodMaxAgeSecs = 0.0;
+  }
+}
@@ -17,6 +17,8 @@ import edu.wpi.first.apriltag.AprilTagFieldLayout;
 import edu.wpi.first.apriltag.AprilTagFields;
 import edu.wpi.first.math.geometry.Rotation3d;
 import edu.wpi.first.math.geometry.Transform3d;
+import edu.wpi.first.math.util.Units;
+import frc.robot.Constants;
 
 public class VisionConstants {
   // AprilTag layout
@@ -34,10 +36,37 @@ public class VisionConstants {
   public static Transform3d robotToCamera1 =
       new Transform3d(-0.2, 0.0, 0.2, new Rotation3d(0.0, -0.4, Math.PI));
 
+  // Use the analytic vision sim instead of the PhotonVision sim
+  // (Much cheaper, suitable for headless and batch simulations)
+  public static boolean useAnalyticSim = Constants.isHeadless();
+
+  // Pipeline throttling, disabling cameras that are predicted to see no tags
+  // (Field of view and range include a margin, since the pose and prediction are approximate)
+  public static boolean enablePipelineThrottling = false;
+  public static double throttleHorizontalFov = Units.degreesToRadians(90.0);
+  public static double throttleVerticalFov = Units.degreesToRadians(75.0);
+  public static double throttleMaxRange = 7.0; // Meters
+  public static double throttleMaxViewAngle = Units.degreesToRadians(80.0); // From tag normal
+  public static double throttleDelaySecs = 0.5; // Must predict no tags for this long
+  public static double throttleMaxPoseAgeSecs = 5.0; // Only throttle after a recent vision update
+
+  // Solve single tag observations with the robot heading fixed to the odometry heading
+  // (Otherwise the full 3D solution is used, which is dropped when ambiguous)
+  public static boolean solveSingleTagWithHeading = true;
+  public static double singleTagMaxHeadingError = Units.degreesToRadians(10.0); // To agree
+
   // Basic filtering thresholds
   public static double maxAmbiguity = 0.3;
   public static double maxZError = 0.75;
 
+  // Innovation gate, comparing observations with odometry at the same timestamp
+  // (99% chi-squared thresholds, 2 DOF when the observation has no rotation data)
+  public static double gateChiSquared2Dof = 9.21;
+  public static double gateChiSquared3Dof = 11.34;
+
+  // Observations from different cameras within this window are fused into one measurement
+  public static double fusionWindowSecs = 0.02;
+
   // Standard deviation baselines, for 1 meter distance and 1 tag
   // (Adjusted automatically based on distance and # of tags)
   public static double linearStdDevBaseline = 0.02; // Meters
@@ -0,0 +1,189 @@
+// Copyright (c) 2025 FRC Team 1466
+// https://github.com/FRC1466
+
+package frc.robot.subsystems.vision;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.Matrix;
+import edu.wpi.first.math.Nat;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.numbers.N1;
+import edu.wpi.first.math.numbers.N3;
+import frc.robot.subsystems.vision.Vision.PoseSampler;
+import frc.robot.subsystems.vision.Vision.VisionConsumer;
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * Merges accepted vision measurements from different cameras into single measurements. Measurements
+ * whose timestamps fall within a window (at most one per camera) are shifted to the newest
+ * timestamp using the odometry history, then combined with inverse variance weighting. This sends
+ * fewer, more accurate measurements to the pose estimator. Poses are kept as primitives, so the
+ * only objects created after warming up are the Pose2d sent for each fused measurement and any
+ * created by the pose sampler.
+ */
+class VisionFuser {
+  private final Matrix<N3, N1> stdDevs = new Matrix<>(Nat.N3(), Nat.N1());
+  private int size = 0;
+  private int[] cameras = new int[8];
+  private double[] timestamps = new double[8];
+  private double[] xs = new double[8];
+  private double[] ys = new double[8];
+  private double[] thetas = new double[8];
+  private double[] linearVariances = new double[8];
+  private double[] angularVariances = new double[8];
+  private int[] order = new int[8];
+  private boolean[] used = new boolean[8];
+  private int[] group = new int[8];
+
+  /** Removes all measurements. */
+  public void clear() {
+    size = 0;
+  }
+
+  /** Adds a measurement from a camera, with the field-relative robot pose in meters and radians. */
+  public void add(
+      int camera,
+      double x,
+      double y,
+      double theta,
+      double timestamp,
+      double linearStdDev,
+      double angularStdDev) {
+    if (size == cameras.length) {
+      int capacity = size * 2;
+      cameras = Arrays.copyOf(cameras, capacity);
+      timestamps = Arrays.copyOf(timestamps, capacity);
+      xs = Arrays.copyOf(xs, capacity);
+      ys = Arrays.copyOf(ys, capacity);
+      thetas = Arrays.copyOf(thetas, capacity);
+      linearVariances = Arrays.copyOf(linearVariances, capacity);
+      angularVariances = Arrays.copyOf(angularVariances, capacity);
+      order = Arrays.copyOf(order, capacity);
+      used = Arrays.copyOf(used, capacity);
+      group = Arrays.copyOf(group, capacity);
+    }
+    cameras[size] = camera;
+    timestamps[size] = timestamp;
+    xs[size] = x;
+    ys[size] = y;
+    thetas[size] = theta;
+    linearVariances[size] = linearStdDev * linearStdDev;
+    angularVariances[size] = angularStdDev * angularStdDev;
+    size++;
+  }
+
+  /**
+   * Fuses the measurements and sends them to the consumer, oldest first.
+   *
+   * @param windowSecs The maximum time between the measurements in a group.
+   * @param poseSampler Odometry history used to shift measurements to a common timestamp.
+   * @param consumer The consumer for fused measurements (which must copy the std devs).
+   * @return The number of measurements sent.
+   */
+  public int fuse(double windowSecs, PoseSampler poseSampler, VisionConsumer consumer) {
+    // Sort by timestamp (insertion sort, since there are only a few measurements)
+    for (int i = 0; i < size; i++) {
+      int index = i;
+      int j = i - 1;
+      while (j >= 0 && timestamps[order[j]] > timestamps[index]) {
+        order[j + 1] = order[j];
+        j--;
+      }
+      order[j + 1] = index;
+      used[i] = false;
+    }
+
+    int sentCount = 0;
+    for (int i = 0; i < size; i++) {
+      int first = order[i];
+      if (used[first]) {
+        continue;
+      }
+
+      // Find measurements from other cameras within the window
+      int groupSize = 0;
+      group[groupSize++] = first;
+      used[first] = true;
+      for (int j = i + 1; j < size && timestamps[order[j]] - timestamps[first] <= windowSecs; j++) {
+        int candidate = order[j];
+        if (used[candidate] || hasCamera(groupSize, cameras[candidate])) {
+          continue;
+        }
+        group[groupSize++] = candidate;
+        used[candidate] = true;
+      }
+      double timestamp = timestamps[group[groupSize - 1]];
+      Optional<Pose2d> odometryPose =
+          groupSize > 1 ? poseSampler.sampleAt(timestamp) : Optional.empty();
+
+      // Combine with inverse variance weighting
+      double linearWeightSum = 0.0;
+      double angularWeightSum = 0.0;
+      double x = 0.0;
+      double y = 0.0;
+      double theta = 0.0;
+      double thetaReference = Double.NaN;
+      for (int k = 0; k < groupSize; k++) {
+        int index = group[k];
+        double memberX = xs[index];
+        double memberY = ys[index];
+        double memberTheta = thetas[index];
+
+        // Shift to the group timestamp using odometry
+        if (odometryPose.isPresent() && timestamps[index] != timestamp) {
+          Optional<Pose2d> memberOdometryPose = poseSampler.sampleAt(timestamps[index]);
+          if (memberOdometryPose.isPresent()) {
+            memberX += odometryPose.get().getX() - memberOdometryPose.get().getX();
+            memberY += odometryPose.get().getY() - memberOdometryPose.get().getY();
+            memberTheta +=
+                odometryPose.get().getRotation().getRadians()
+                    - memberOdometryPose.get().getRotation().getRadians();
+          }
+        }
+
+        double linearWeight = 1.0 / linearVariances[index];
+        linearWeightSum += linearWeight;
+        x += memberX * linearWeight;
+        y += memberY * linearWeight;
+        if (Double.isFinite(angularVariances[index])) {
+          // Average angles relative to the first one to avoid wrapping
+          if (Double.isNaN(thetaReference)) {
+            thetaReference = memberTheta;
+          }
+          double angularWeight = 1.0 / angularVariances[index];
+          angularWeightSum += angularWeight;
+          theta += MathUtil.angleModulus(memberTheta - thetaReference) * angularWeight;
+        }
+      }
+      x /= linearWeightSum;
+      y /= linearWeightSum;
+      if (angularWeightSum > 0.0) {
+        theta = thetaReference + theta / angularWeightSum;
+      } else {
+        theta = thetas[group[groupSize - 1]]; // Not used by the estimator
+      }
+
+      // Send measurement
+      double linearStdDev = Math.sqrt(1.0 / linearWeightSum);
+      double angularStdDev =
+          angularWeightSum > 0.0 ? Math.sqrt(1.0 / angularWeightSum) : Double.POSITIVE_INFINITY;
+      stdDevs.set(0, 0, linearStdDev);
+      stdDevs.set(1, 0, linearStdDev);
+      stdDevs.set(2, 0, angularStdDev);
+      consumer.accept(new Pose2d(x, y, new Rotation2d(theta)), timestamp, stdDevs);
+      sentCount++;
+    }
+    return sentCount;
+  }
+
+  private boolean hasCamera(int groupSize, int camera) {
+    for (int k = 0; k < groupSize; k++) {
+      if (cameras[group[k]] == camera) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
@@ -15,15 +15,20 @@ package frc.robot.subsystems.vision;
 
 import edu.wpi.first.math.geometry.Pose3d;
 import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Transform3d;
 import org.littletonrobotics.junction.AutoLog;
 
 public interface VisionIO {
   @AutoLog
   public static class VisionIOInputs {
     public boolean connected = false;
+    public long frameCount = 0; // Total frames processed, including frames without tags
+    public double latencySecs = 0.0; // From capture to result for the latest frame, if reported
+    public double captureToReadSecs = 0.0; // From capture until read, if latency isn't reported
     public TargetObservation latestTargetObservation =
         new TargetObservation(new Rotation2d(), new Rotation2d());
     public PoseObservation[] poseObservations = new PoseObservation[0];
+    public SingleTagObservation[] singleTagObservations = new SingleTagObservation[0];
     public int[] tagIds = new int[0];
   }
 
@@ -39,6 +44,17 @@ public interface VisionIO {
       double averageTagDistance,
       PoseObservationType type) {}
 
+  /**
+   * Represents both camera to tag solutions for a frame with one tag. These are solved into a robot
+   * pose by Vision, which uses the odometry heading to pick a solution.
+   */
+  public static record SingleTagObservation(
+      double timestamp,
+      int tagId,
+      Transform3d bestCameraToTag,
+      Transform3d altCameraToTag,
+      double ambiguity) {}
+
   public static enum PoseObservationType {
     MEGATAG_1,
     MEGATAG_2,
@@ -46,4 +62,12 @@ public interface VisionIO {
   }
 
   public default void updateInputs(VisionIOInputs inputs) {}
+
+  /** Returns the 3D position of the camera relative to the robot, or null if not known. */
+  public default Transform3d getRobotToCamera() {
+    return null;
+  }
+
+  /** Enables or disables pose processing on the camera, such as to reduce coprocessor load. */
+  public default void setPipelineEnabled(boolean enabled) {}
 }
@@ -0,0 +1,168 @@
+// Copyright (c) 2025 FRC Team 1466
+// https://github.com/FRC1466
+
+package frc.robot.subsystems.vision;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Pose3d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Rotation3d;
+import edu.wpi.first.math.geometry.Transform3d;
+import edu.wpi.first.math.geometry.Translation3d;
+import edu.wpi.first.math.util.Units;
+import edu.wpi.first.wpilibj.Timer;
+import frc.robot.util.SimNoise;
+import java.util.Random;
+import java.util.function.Supplier;
+
+/**
+ * Lightweight IO implementation for physics sim. Visible tags are found analytically from the
+ * camera field of view, range, and tag orientation, and noisy pose observations are generated
+ * directly instead of rendering and solving each frame. This is much cheaper than the PhotonVision
+ * simulator, which makes it suitable for large batches of simulations. When sim noise is enabled,
+ * the simulated camera is mounted slightly away from the configured robot to camera transform.
+ *
+ * <p>The measurement noise model is independent of the standard deviations used by the pose
+ * estimator, so that sims can show whether those standard deviations are realistic.
+ */
+public class VisionIOAnalyticSim implements VisionIO {
+  private static final double FRAME_PERIOD_SECS = 1.0 / 30.0;
+  private static final double LATENCY_SECS = 0.035;
+  private static final double HORIZONTAL_FOV = Units.degreesToRadians(75.0);
+  private static final double VERTICAL_FOV = Units.degreesToRadians(58.0);
+  private static final double MAX_RANGE = 6.0; // Meters
+  private static final double MAX_VIEW_ANGLE = Units.degreesToRadians(70.0); // From tag normal
+  private static final double MAX_SINGLE_TAG_AMBIGUITY = 0.4;
+  private static final double MOUNT_TRANSLATION_STD_DEV = 0.01; // Meters
+  private static final double MOUNT_ROTATION_STD_DEV = Units.degreesToRadians(1.0);
+
+  // Camera pose noise at 1 meter from one tag, growing with distance squared and shrinking with
+  // the square root of the tag count
+  private static final double LINEAR_NOISE_STD_DEV = 0.015; // Meters
+  private static final double ANGULAR_NOISE_STD_DEV = Units.degreesToRadians(2.0);
+
+  private final Transform3d robotToCamera;
+  private final Transform3d cameraToRobot;
+  private final Transform3d actualRobotToCamera; // Including mounting error
+  private final Supplier<Pose2d> poseSupplier;
+  private final Random random = SimNoise.newRandom();
+  private double lastFrameTimestamp = Double.NEGATIVE_INFINITY;
+  private long frameCount = 0;
+  private boolean pipelineEnabled = true;
+
+  /**
+   * Creates a new VisionIOAnalyticSim.
+   *
+   * @param robotToCamera The 3D position of the camera relative to the robot.
+   * @param poseSupplier Supplier for the robot pose to use in simulation.
+   */
+  public VisionIOAnalyticSim(Transform3d robotToCamera, Supplier<Pose2d> poseSupplier) {
+    this.robotToCamera = robotToCamera;
+    this.poseSupplier = poseSupplier;
+    cameraToRobot = robotToCamera.inverse();
+    actualRobotToCamera =
+        robotToCamera.plus(
+            SimNoise.gaussianTransform(MOUNT_TRANSLATION_STD_DEV, MOUNT_ROTATION_STD_DEV));
+  }
+
+  @Override
+  public void updateInputs(VisionIOInputs inputs) {
+    inputs.connected = true;
+
+    // Wait for the next frame
+    double timestamp = Timer.getTimestamp();
+    if (!pipelineEnabled || timestamp - lastFrameTimestamp < FRAME_PERIOD_SECS) {
+      inputs.poseObservations = new PoseObservation[0];
+      inputs.tagIds = new int[0];
+      return;
+    }
+    lastFrameTimestamp = timestamp;
+    inputs.frameCount = ++frameCount;
+    inputs.latencySecs = LATENCY_SECS;
+
+    // Find visible tags
+    Pose3d robotPose = new Pose3d(poseSupplier.get());
+    Pose3d cameraPose = robotPose.transformBy(actualRobotToCamera);
+    int[] visibleTagIds = new int[AprilTagPoses.getIdLimit()];
+    int tagCount = 0;
+    double totalTagDistance = 0.0;
+    double closestTagDistance = Double.POSITIVE_INFINITY;
+    TargetObservation closestTarget = null;
+    for (int id = 0; id < visibleTagIds.length; id++) {
+      Pose3d tagPose = AprilTagPoses.getPose(id);
+      if (tagPose == null) {
+        continue;
+      }
+
+      // Check range, field of view, and tag orientation
+      if (!TagVisibility.isVisible(
+          cameraPose, tagPose, HORIZONTAL_FOV, VERTICAL_FOV, MAX_RANGE, MAX_VIEW_ANGLE)) {
+        continue;
+      }
+
+      // Add tag
+      Translation3d cameraToTag = tagPose.relativeTo(cameraPose).getTranslation();
+      double distance = cameraToTag.getNorm();
+      double yaw = Math.atan2(cameraToTag.getY(), cameraToTag.getX());
+      double pitch =
+          Math.atan2(cameraToTag.getZ(), Math.hypot(cameraToTag.getX(), cameraToTag.getY()));
+      visibleTagIds[tagCount++] = id;
+      totalTagDistance += distance;
+      if (distance < closestTagDistance) {
+        closestTagDistance = distance;
+        closestTarget = new TargetObservation(new Rotation2d(-yaw), new Rotation2d(pitch));
+      }
+    }
+
+    // Save tag IDs and target observation
+    inputs.tagIds = new int[tagCount];
+    System.arraycopy(visibleTagIds, 0, inputs.tagIds, 0, tagCount);
+    inputs.latestTargetObservation =
+        closestTarget != null
+            ? closestTarget
+            : new TargetObservation(new Rotation2d(), new Rotation2d());
+    if (tagCount == 0) {
+      inputs.poseObservations = new PoseObservation[0];
+      return;
+    }
+
+    // Generate noisy camera pose, then solve for the robot pose using the configured transform
+    double averageTagDistance = totalTagDistance / tagCount;
+    double noiseFactor = Math.pow(averageTagDistance, 2.0) / Math.sqrt(tagCount);
+    double linearStdDev = LINEAR_NOISE_STD_DEV * noiseFactor;
+    double angularStdDev = ANGULAR_NOISE_STD_DEV * noiseFactor;
+    Pose3d observedPose =
+        cameraPose
+            .transformBy(
+                new Transform3d(
+                    new Translation3d(
+                        random.nextGaussian() * linearStdDev,
+                        random.nextGaussian() * linearStdDev,
+                        random.nextGaussian() * linearStdDev),
+                    new Rotation3d(
+                        random.nextGaussian() * angularStdDev,
+                        random.nextGaussian() * angularStdDev,
+                        random.nextGaussian() * angularStdDev)))
+            .transformBy(cameraToRobot);
+    inputs.poseObservations =
+        new PoseObservation[] {
+          new PoseObservation(
+              timestamp - LATENCY_SECS, // Timestamp
+              observedPose, // 3D pose estimate
+              tagCount > 1 ? 0.0 : random.nextDouble() * MAX_SINGLE_TAG_AMBIGUITY, // Ambiguity
+              tagCount, // Tag count
+              averageTagDistance, // Average tag distance
+              PoseObservationType.PHOTONVISION) // Observation type
+        };
+  }
+
+  @Override
+  public Transform3d getRobotToCamera() {
+    return robotToCamera;
+  }
+
+  @Override
+  public void setPipelineEnabled(boolean enabled) {
+    pipelineEnabled = enabled;
+  }
+}
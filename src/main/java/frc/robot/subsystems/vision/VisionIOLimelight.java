@@ -0,0 +1,157 @@
+// Copyright (c) 2025 FRC Team 1466
+// https://github.com/FRC1466
+
+package frc.robot.subsystems.vision;
+
+import edu.wpi.first.math.geometry.Pose3d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Rotation3d;
+import edu.wpi.first.math.util.Units;
+import edu.wpi.first.networktables.DoubleArrayPublisher;
+import edu.wpi.first.networktables.DoubleArraySubscriber;
+import edu.wpi.first.networktables.DoubleSubscriber;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.networktables.PubSubOption;
+import edu.wpi.first.networktables.TimestampedDoubleArray;
+import edu.wpi.first.wpilibj.RobotController;
+import java.util.ArrayList;
+import java.util.function.Supplier;
+
+/**
+ * IO implementation for real Limelight hardware. MegaTag 1 and MegaTag 2 poses are read from
+ * NetworkTables queues, so every frame received since the last loop is used instead of only the
+ * latest one. The robot heading is published back to the Limelight each loop for MegaTag 2.
+ */
+public class VisionIOLimelight implements VisionIO {
+  private static final double DISCONNECT_TIMEOUT_SECS = 0.25;
+  private static final int QUEUE_DEPTH = 20; // More than enough frames for one loop
+
+  // Indices in the botpose arrays
+  private static final int LATENCY_INDEX = 6;
+  private static final int TAG_COUNT_INDEX = 7;
+  private static final int AVERAGE_DISTANCE_INDEX = 9;
+  private static final int FIRST_TAG_INDEX = 11;
+  private static final int TAG_STRIDE = 7; // ID, txnc, tync, ta, camera dist, robot dist, ambiguity
+  private static final int TAG_AMBIGUITY_OFFSET = 6;
+
+  private static final PoseObservation[] NO_POSE_OBSERVATIONS = new PoseObservation[0];
+
+  private final Supplier<Rotation2d> rotationSupplier;
+  private final DoubleArrayPublisher orientationPublisher;
+  private final DoubleSubscriber latencySubscriber;
+  private final DoubleSubscriber captureLatencySubscriber;
+  private final DoubleSubscriber heartbeatSubscriber;
+  private final DoubleSubscriber txSubscriber;
+  private final DoubleSubscriber tySubscriber;
+  private final DoubleArraySubscriber megatag1Subscriber;
+  private final DoubleArraySubscriber megatag2Subscriber;
+
+  // Buffers for building inputs, reused every loop
+  private final double[] orientation = new double[6];
+  private final ArrayList<PoseObservation> poseObservations = new ArrayList<>();
+  private final TagIdBuffer tagIds = new TagIdBuffer();
+
+  /**
+   * Creates a new VisionIOLimelight.
+   *
+   * @param name The configured name of the Limelight.
+   * @param rotationSupplier Supplier for the current estimated rotation, used for MegaTag 2.
+   */
+  public VisionIOLimelight(String name, Supplier<Rotation2d> rotationSupplier) {
+    NetworkTable table = NetworkTableInstance.getDefault().getTable(name);
+    this.rotationSupplier = rotationSupplier;
+    orientationPublisher = table.getDoubleArrayTopic("robot_orientation_set").publish();
+    latencySubscriber = table.getDoubleTopic("tl").subscribe(0.0);
+    captureLatencySubscriber = table.getDoubleTopic("cl").subscribe(0.0);
+    heartbeatSubscriber = table.getDoubleTopic("hb").subscribe(0.0);
+    txSubscriber = table.getDoubleTopic("tx").subscribe(0.0);
+    tySubscriber = table.getDoubleTopic("ty").subscribe(0.0);
+    megatag1Subscriber =
+        table
+            .getDoubleArrayTopic("botpose_wpiblue")
+            .subscribe(new double[] {}, PubSubOption.pollStorage(QUEUE_DEPTH));
+    megatag2Subscriber =
+        table
+            .getDoubleArrayTopic("botpose_orb_wpiblue")
+            .subscribe(new double[] {}, PubSubOption.pollStorage(QUEUE_DEPTH));
+  }
+
+  @Override
+  public void updateInputs(VisionIOInputs inputs) {
+    // Update connection status based on whether an update has been seen recently
+    inputs.connected =
+        (RobotController.getFPGATime() - latencySubscriber.getLastChange()) / 1.0e6
+            < DISCONNECT_TIMEOUT_SECS;
+
+    // Update frame count (the heartbeat increments once per frame) and pipeline latency
+    inputs.frameCount = (long) heartbeatSubscriber.get();
+    inputs.latencySecs = (latencySubscriber.get() + captureLatencySubscriber.get()) * 1.0e-3;
+
+    // Update target observation
+    inputs.latestTargetObservation =
+        new TargetObservation(
+            Rotation2d.fromDegrees(txSubscriber.get()), Rotation2d.fromDegrees(tySubscriber.get()));
+
+    // Update orientation for MegaTag 2
+    orientation[0] = rotationSupplier.get().getDegrees();
+    orientationPublisher.set(orientation);
+    NetworkTableInstance.getDefault().flush(); // Increases network traffic but recommended by LL
+
+    // Read new pose observations from NetworkTables
+    poseObservations.clear();
+    tagIds.clear();
+    readObservations(megatag1Subscriber, PoseObservationType.MEGATAG_1);
+    readObservations(megatag2Subscriber, PoseObservationType.MEGATAG_2);
+
+    // Save pose observations and tag IDs to inputs object
+    inputs.poseObservations =
+        poseObservations.isEmpty()
+            ? NO_POSE_OBSERVATIONS
+            : poseObservations.toArray(new PoseObservation[poseObservations.size()]);
+    inputs.tagIds = tagIds.toArray();
+  }
+
+  /** Parses all queued botpose arrays from a subscriber into pose observations. */
+  private void readObservations(DoubleArraySubscriber subscriber, PoseObservationType type) {
+    for (TimestampedDoubleArray sample : subscriber.readQueue()) {
+      double[] values = sample.value;
+      if (values.length < FIRST_TAG_INDEX || values[TAG_COUNT_INDEX] == 0) {
+        continue;
+      }
+      for (int i = FIRST_TAG_INDEX; i < values.length; i += TAG_STRIDE) {
+        if (TagIdBuffer.isValidId(values[i])) {
+          tagIds.add((int) values[i]);
+        }
+      }
+
+      // Use the ambiguity of the first tag (MegaTag 2 is unambiguous)
+      double ambiguity = 0.0;
+      if (type == PoseObservationType.MEGATAG_1
+          && values.length > FIRST_TAG_INDEX + TAG_AMBIGUITY_OFFSET) {
+        ambiguity = values[FIRST_TAG_INDEX + TAG_AMBIGUITY_OFFSET];
+      }
+
+      poseObservations.add(
+          new PoseObservation(
+              sample.timestamp * 1.0e-6 - values[LATENCY_INDEX] * 1.0e-3, // Timestamp
+              parsePose(values), // 3D pose estimate
+              ambiguity, // Ambiguity
+              (int) values[TAG_COUNT_INDEX], // Tag count
+              values[AVERAGE_DISTANCE_INDEX], // Average tag distance
+              type)); // Observation type
+    }
+  }
+
+  /** Parses the 3D pose from a Limelight botpose array. */
+  private static Pose3d parsePose(double[] values) {
+    return new Pose3d(
+        values[0],
+        values[1],
+        values[2],
+        new Rotation3d(
+            Units.degreesToRadians(values[3]),
+            Units.degreesToRadians(values[4]),
+            Units.degreesToRadians(values[5])));
+  }
+}
@@ -0,0 +1,191 @@
+// Copyright (c) 2025 FRC Team 1466
+// https://github.com/FRC1466
+
+package frc.robot.subsystems.vision;
+
+import edu.wpi.first.math.geometry.Pose3d;
+import edu.wpi.first.math.geometry.Quaternion;
+import edu.wpi.first.math.geometry.Rotation3d;
+import edu.wpi.first.math.geometry.Transform3d;
+import edu.wpi.first.networktables.DoubleArraySubscriber;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.networktables.PubSubOption;
+import edu.wpi.first.networktables.StringPublisher;
+import edu.wpi.first.networktables.TimestampedDoubleArray;
+import edu.wpi.first.wpilibj.RobotController;
+import frc.robot.FieldConstants;
+import frc.robot.FieldConstants.AprilTagLayoutType;
+import java.util.ArrayList;
+import java.util.function.Supplier;
+
+/**
+ * IO implementation for a Northstar coprocessor. The selected AprilTag layout and the camera
+ * configuration are published to the coprocessor, which runs detection and pose solving, so this
+ * only decodes the results. Frames are read from a NetworkTables queue so none are missed.
+ *
+ * <p>Each frame is a packed double array: the number of camera pose solutions (0, 1, or 2), then
+ * for each solution its reprojection error and field to camera pose (x, y, z, qw, qx, qy, qz),
+ * followed by the IDs of the tags used. The frame timestamp is the capture time.
+ *
+ * <p>Northstar doesn't report its pipeline latency, so the latency input stays at zero. The time
+ * from capture until the frame is read is logged separately, since it also includes the network
+ * delay and the time the frame waited in the queue.
+ */
+public class VisionIONorthstar implements VisionIO {
+  private static final double DISCONNECT_TIMEOUT_SECS = 0.5;
+  private static final int QUEUE_DEPTH = 20; // More than enough frames for one loop
+  private static final int POSE_LENGTH = 8; // Error, x, y, z, qw, qx, qy, qz
+
+  private static final PoseObservation[] NO_POSE_OBSERVATIONS = new PoseObservation[0];
+
+  /** Camera settings sent to the coprocessor. */
+  public static record CameraConfig(
+      String id, int width, int height, int autoExposure, int exposure, double gain) {}
+
+  private final Transform3d cameraToRobot;
+  private final Supplier<AprilTagLayoutType> layoutSupplier;
+  private final StringPublisher layoutPublisher;
+  private final DoubleArraySubscriber observationsSubscriber;
+  private AprilTagLayoutType publishedLayout = null;
+  private long frameCount = 0;
+
+  // Buffers for building inputs, reused every loop
+  private final ArrayList<PoseObservation> poseObservations = new ArrayList<>();
+  private final TagIdBuffer tagIds = new TagIdBuffer();
+
+  /**
+   * Creates a new VisionIONorthstar.
+   *
+   * @param name The configured name of the Northstar instance.
+   * @param cameraConfig The camera settings to send to the coprocessor.
+   * @param robotToCamera The 3D position of the camera relative to the robot.
+   * @param layoutSupplier Supplier for the AprilTag layout to use, republished when it changes.
+   */
+  public VisionIONorthstar(
+      String name,
+      CameraConfig cameraConfig,
+      Transform3d robotToCamera,
+      Supplier<AprilTagLayoutType> layoutSupplier) {
+    cameraToRobot = robotToCamera.inverse();
+    this.layoutSupplier = layoutSupplier;
+
+    // Publish camera config
+    NetworkTable configTable = NetworkTableInstance.getDefault().getTable(name + "/config");
+    configTable.getStringTopic("camera_id").publish().set(cameraConfig.id());
+    configTable.getIntegerTopic("camera_resolution_width").publish().set(cameraConfig.width());
+    configTable.getIntegerTopic("camera_resolution_height").publish().set(cameraConfig.height());
+    configTable.getIntegerTopic("camera_auto_exposure").publish().set(cameraConfig.autoExposure());
+    configTable.getIntegerTopic("camera_exposure").publish().set(cameraConfig.exposure());
+    configTable.getDoubleTopic("camera_gain").publish().set(cameraConfig.gain());
+    configTable.getDoubleTopic("fiducial_size_m").publish().set(FieldConstants.aprilTagWidth);
+    layoutPublisher = configTable.getStringTopic("tag_layout").publish();
+
+    // Subscribe to observations
+    NetworkTable outputTable = NetworkTableInstance.getDefault().getTable(name + "/output");
+    observationsSubscriber =
+        outputTable
+            .getDoubleArrayTopic("observations")
+            .subscribe(
+                new double[] {},
+                PubSubOption.pollStorage(QUEUE_DEPTH),
+                PubSubOption.sendAll(true),
+                PubSubOption.periodic(0.01));
+  }
+
+  @Override
+  public void updateInputs(VisionIOInputs inputs) {
+    // Publish layout if changed (serialized once in FieldConstants)
+    AprilTagLayoutType layout = layoutSupplier.get();
+    if (layout != publishedLayout) {
+      layoutPublisher.set(layout.getLayoutString());
+      publishedLayout = layout;
+    }
+
+    // Update connection status based on whether a frame has been seen recently
+    long fpgaTime = RobotController.getFPGATime();
+    inputs.connected =
+        (fpgaTime - observationsSubscriber.getLastChange()) / 1.0e6 < DISCONNECT_TIMEOUT_SECS;
+
+    // Decode new frames
+    poseObservations.clear();
+    tagIds.clear();
+    for (TimestampedDoubleArray sample : observationsSubscriber.readQueue()) {
+      frameCount++;
+      inputs.captureToReadSecs = (fpgaTime - sample.timestamp) * 1.0e-6;
+      decodeFrame(sample.timestamp * 1.0e-6, sample.value);
+    }
+    inputs.frameCount = frameCount;
+
+    // Save pose observations and tag IDs to inputs object
+    inputs.poseObservations =
+        poseObservations.isEmpty()
+            ? NO_POSE_OBSERVATIONS
+            : poseObservations.toArray(new PoseObservation[poseObservations.size()]);
+    inputs.tagIds = tagIds.toArray();
+  }
+
+  /** Decodes one packed frame into a pose observation. */
+  private void decodeFrame(double timestamp, double[] values) {
+    if (values.length == 0) {
+      return;
+    }
+    int solutionCount = (int) values[0];
+    int firstTagIndex = 1 + solutionCount * POSE_LENGTH;
+    if (solutionCount < 1 || solutionCount > 2 || values.length < firstTagIndex) {
+      return;
+    }
+
+    // Use the solution with the lower error, and the error ratio as the ambiguity
+    int bestIndex = 1;
+    double ambiguity = 0.0;
+    if (solutionCount == 2) {
+      double error0 = values[1];
+      double error1 = values[1 + POSE_LENGTH];
+      if (error1 < error0) {
+        bestIndex = 1 + POSE_LENGTH;
+      }
+      ambiguity = error0 == error1 ? 1.0 : Math.min(error0, error1) / Math.max(error0, error1);
+    }
+    Pose3d cameraPose =
+        new Pose3d(
+            values[bestIndex + 1],
+            values[bestIndex + 2],
+            values[bestIndex + 3],
+            new Rotation3d(
+                new Quaternion(
+                    values[bestIndex + 4],
+                    values[bestIndex + 5],
+                    values[bestIndex + 6],
+                    values[bestIndex + 7])));
+    Pose3d robotPose = cameraPose.transformBy(cameraToRobot);
+
+    // Read tag IDs and distances
+    int tagCount = 0;
+    double totalTagDistance = 0.0;
+    for (int i = firstTagIndex; i < values.length; i++) {
+      if (!TagIdBuffer.isValidId(values[i])) {
+        continue;
+      }
+      int id = (int) values[i];
+      tagIds.add(id);
+      tagCount++;
+      Pose3d tagPose = AprilTagPoses.getPose(id);
+      if (tagPose != null) {
+        totalTagDistance += tagPose.getTranslation().getDistance(cameraPose.getTranslation());
+      }
+    }
+    if (tagCount == 0) {
+      return;
+    }
+
+    poseObservations.add(
+        new PoseObservation(
+            timestamp, // Timestamp
+            robotPose, // 3D pose estimate
+            ambiguity, // Ambiguity
+            tagCount, // Tag count
+            totalTagDistance / tagCount, // Average tag distance
+            PoseObservationType.PHOTONVISION)); // Observation type (full 3D solve)
+  }
+}
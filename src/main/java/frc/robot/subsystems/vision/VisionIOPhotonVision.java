@@ -18,114 +18,220 @@ import static frc.robot.subsystems.vision.VisionConstants.*;
 import edu.wpi.first.math.geometry.Pose3d;
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.geometry.Transform3d;
-import java.util.HashSet;
-import java.util.LinkedList;
-import java.util.List;
-import java.util.Set;
+import java.util.ArrayList;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import org.photonvision.PhotonCamera;
-
-/** IO implementation for real PhotonVision hardware. */
+import org.photonvision.targeting.PhotonPipelineResult;
+
+/**
+ * IO implementation for real PhotonVision hardware. Results are read and converted to pose
+ * observations by a background thread for each camera as frames arrive, and handed to the main loop
+ * through a lock-free queue. Single tag results keep both tag solutions, so Vision can pick one
+ * using the odometry heading.
+ */
 public class VisionIOPhotonVision implements VisionIO {
+  private static final long READER_PERIOD_MS = 5;
+
   protected final PhotonCamera camera;
   protected final Transform3d robotToCamera;
+  private final Transform3d cameraToRobot;
+  private Boolean pipelineEnabled = null; // Unknown until first set, the camera may be in any mode
+  private final boolean background;
+  private final Queue<Frame> frameQueue = new ConcurrentLinkedQueue<>();
+  private long frameCount = 0;
+
+  // Buffers for building inputs, reused every loop
+  private static final PoseObservation[] NO_POSE_OBSERVATIONS = new PoseObservation[0];
+  private static final SingleTagObservation[] NO_SINGLE_TAG_OBSERVATIONS =
+      new SingleTagObservation[0];
+  private final ArrayList<PoseObservation> poseObservations = new ArrayList<>();
+  private final ArrayList<SingleTagObservation> singleTagObservations = new ArrayList<>();
+  private final TagIdBuffer tagIds = new TagIdBuffer();
+
+  /** A processed camera result. */
+  private static record Frame(
+      double latencySecs,
+      TargetObservation targetObservation,
+      PoseObservation poseObservation,
+      SingleTagObservation singleTagObservation,
+      int[] tagIds) {}
 
   /**
    * Creates a new VisionIOPhotonVision.
    *
    * @param name The configured name of the camera.
-   * @param rotationSupplier The 3D position of the camera relative to the robot.
+   * @param robotToCamera The 3D position of the camera relative to the robot.
    */
   public VisionIOPhotonVision(String name, Transform3d robotToCamera) {
+    this(name, robotToCamera, true);
+  }
+
+  /**
+   * Creates a new VisionIOPhotonVision.
+   *
+   * @param name The configured name of the camera.
+   * @param robotToCamera The 3D position of the camera relative to the robot.
+   * @param background Whether to read results on a background thread, instead of synchronously in
+   *     updateInputs (as required for deterministic simulation).
+   */
+  protected VisionIOPhotonVision(
+      String name, Transform3d robotToCamera, boolean background) {
     camera = new PhotonCamera(name);
     this.robotToCamera = robotToCamera;
+    cameraToRobot = robotToCamera.inverse();
+    this.background = background;
+    if (background) {
+      Thread readerThread =
+          new Thread(
+              () -> {
+                while (true) {
+                  readResults();
+                  try {
+                    Thread.sleep(READER_PERIOD_MS);
+                  } catch (InterruptedException e) {
+                    return;
+                  }
+                }
+              },
+              "VisionReader_" + name);
+      readerThread.setDaemon(true);
+      readerThread.start();
+    }
   }
 
   @Override
   public void updateInputs(VisionIOInputs inputs) {
     inputs.connected = camera.isConnected();
+    if (!background) {
+      readResults();
+    }
 
-    // Read new camera observations
-    Set<Short> tagIds = new HashSet<>();
-    List<PoseObservation> poseObservations = new LinkedList<>();
-    for (var result : camera.getAllUnreadResults()) {
-      // Update latest target observation
-      if (result.hasTargets()) {
-        inputs.latestTargetObservation =
-            new TargetObservation(
-                Rotation2d.fromDegrees(result.getBestTarget().getYaw()),
-                Rotation2d.fromDegrees(result.getBestTarget().getPitch()));
-      } else {
-        inputs.latestTargetObservation = new TargetObservation(new Rotation2d(), new Rotation2d());
+    // Read processed frames
+    poseObservations.clear();
+    singleTagObservations.clear();
+    tagIds.clear();
+    Frame frame;
+    while ((frame = frameQueue.poll()) != null) {
+      frameCount++;
+      inputs.latencySecs = frame.latencySecs();
+      inputs.latestTargetObservation = frame.targetObservation();
+      if (frame.poseObservation() != null) {
+        poseObservations.add(frame.poseObservation());
       }
-
-      // Add pose observation
-      if (result.multitagResult.isPresent()) { // Multitag result
-        var multitagResult = result.multitagResult.get();
-
-        // Calculate robot pose
-        Transform3d fieldToCamera = multitagResult.estimatedPose.best;
-        Transform3d fieldToRobot = fieldToCamera.plus(robotToCamera.inverse());
-        Pose3d robotPose = new Pose3d(fieldToRobot.getTranslation(), fieldToRobot.getRotation());
-
-        // Calculate average tag distance
-        double totalTagDistance = 0.0;
-        for (var target : result.targets) {
-          totalTagDistance += target.bestCameraToTarget.getTranslation().getNorm();
-        }
-
-        // Add tag IDs
-        tagIds.addAll(multitagResult.fiducialIDsUsed);
-
-        // Add observation
-        poseObservations.add(
-            new PoseObservation(
-                result.getTimestampSeconds(), // Timestamp
-                robotPose, // 3D pose estimate
-                multitagResult.estimatedPose.ambiguity, // Ambiguity
-                multitagResult.fiducialIDsUsed.size(), // Tag count
-                totalTagDistance / result.targets.size(), // Average tag distance
-                PoseObservationType.PHOTONVISION)); // Observation type
-
-      } else if (!result.targets.isEmpty()) { // Single tag result
-        var target = result.targets.get(0);
-
-        // Calculate robot pose
-        var tagPose = aprilTagLayout.getTagPose(target.fiducialId);
-        if (tagPose.isPresent()) {
-          Transform3d fieldToTarget =
-              new Transform3d(tagPose.get().getTranslation(), tagPose.get().getRotation());
-          Transform3d cameraToTarget = target.bestCameraToTarget;
-          Transform3d fieldToCamera = fieldToTarget.plus(cameraToTarget.inverse());
-          Transform3d fieldToRobot = fieldToCamera.plus(robotToCamera.inverse());
-          Pose3d robotPose = new Pose3d(fieldToRobot.getTranslation(), fieldToRobot.getRotation());
-
-          // Add tag ID
-          tagIds.add((short) target.fiducialId);
-
-          // Add observation
-          poseObservations.add(
-              new PoseObservation(
-                  result.getTimestampSeconds(), // Timestamp
-                  robotPose, // 3D pose estimate
-                  target.poseAmbiguity, // Ambiguity
-                  1, // Tag count
-                  cameraToTarget.getTranslation().getNorm(), // Average tag distance
-                  PoseObservationType.PHOTONVISION)); // Observation type
-        }
+      if (frame.singleTagObservation() != null) {
+        singleTagObservations.add(frame.singleTagObservation());
+      }
+      for (int id : frame.tagIds()) {
+        tagIds.add(id);
       }
     }
+    inputs.frameCount = frameCount;
 
     // Save pose observations to inputs object
-    inputs.poseObservations = new PoseObservation[poseObservations.size()];
-    for (int i = 0; i < poseObservations.size(); i++) {
-      inputs.poseObservations[i] = poseObservations.get(i);
-    }
+    inputs.poseObservations =
+        poseObservations.isEmpty()
+            ? NO_POSE_OBSERVATIONS
+            : poseObservations.toArray(new PoseObservation[poseObservations.size()]);
+    inputs.singleTagObservations =
+        singleTagObservations.isEmpty()
+            ? NO_SINGLE_TAG_OBSERVATIONS
+            : singleTagObservations.toArray(
+                new SingleTagObservation[singleTagObservations.size()]);
 
     // Save tag IDs to inputs objects
-    inputs.tagIds = new int[tagIds.size()];
-    int i = 0;
-    for (int id : tagIds) {
-      inputs.tagIds[i++] = id;
+    inputs.tagIds = tagIds.toArray();
+  }
+
+  @Override
+  public Transform3d getRobotToCamera() {
+    return robotToCamera;
+  }
+
+  @Override
+  public void setPipelineEnabled(boolean enabled) {
+    // Driver mode stops processing on the coprocessor, only send on changes
+    if (pipelineEnabled == null || enabled != pipelineEnabled) {
+      camera.setDriverMode(!enabled);
+      pipelineEnabled = enabled;
+    }
+  }
+
+  /** Reads all new camera results and queues the processed frames. */
+  private void readResults() {
+    for (var result : camera.getAllUnreadResults()) {
+      frameQueue.offer(processResult(result));
+    }
+  }
+
+  /**
+   * Converts a camera result to a target observation and either a pose observation (multitag) or a
+   * single tag observation.
+   */
+  private Frame processResult(PhotonPipelineResult result) {
+    // Calculate target observation
+    TargetObservation targetObservation;
+    if (result.hasTargets()) {
+      targetObservation =
+          new TargetObservation(
+              Rotation2d.fromDegrees(result.getBestTarget().getYaw()),
+              Rotation2d.fromDegrees(result.getBestTarget().getPitch()));
+    } else {
+      targetObservation = new TargetObservation(new Rotation2d(), new Rotation2d());
+    }
+
+    // Calculate pose observation
+    double latencySecs = result.metadata.getLatencyMillis() / 1000.0;
+    if (result.multitagResult.isPresent()) { // Multitag result
+      var multitagResult = result.multitagResult.get();
+
+      // Calculate robot pose
+      Transform3d fieldToCamera = multitagResult.estimatedPose.best;
+      Transform3d fieldToRobot = fieldToCamera.plus(cameraToRobot);
+      Pose3d robotPose = new Pose3d(fieldToRobot.getTranslation(), fieldToRobot.getRotation());
+
+      // Calculate average tag distance
+      double totalTagDistance = 0.0;
+      for (var target : result.targets) {
+        totalTagDistance += target.bestCameraToTarget.getTranslation().getNorm();
+      }
+
+      // Add observation
+      int[] tagIds = new int[multitagResult.fiducialIDsUsed.size()];
+      for (int i = 0; i < tagIds.length; i++) {
+        tagIds[i] = multitagResult.fiducialIDsUsed.get(i);
+      }
+      return new Frame(
+          latencySecs,
+          targetObservation,
+          new PoseObservation(
+              result.getTimestampSeconds(), // Timestamp
+              robotPose, // 3D pose estimate
+              multitagResult.estimatedPose.ambiguity, // Ambiguity
+              multitagResult.fiducialIDsUsed.size(), // Tag count
+              totalTagDistance / result.targets.size(), // Average tag distance
+              PoseObservationType.PHOTONVISION), // Observation type
+          null,
+          tagIds);
+
+    } else if (!result.targets.isEmpty()) { // Single tag result
+      var target = result.targets.get(0);
+
+      // Save both solutions, Vision solves for the robot pose
+      Transform3d altCameraToTarget =
+          target.altCameraToTarget != null ? target.altCameraToTarget : target.bestCameraToTarget;
+      return new Frame(
+          latencySecs,
+          targetObservation,
+          null,
+          new SingleTagObservation(
+              result.getTimestampSeconds(), // Timestamp
+              target.fiducialId, // Tag ID
+              target.bestCameraToTarget, // Best solution
+              altCameraToTarget, // Alternate solution
+              target.poseAmbiguity), // Ambiguity
+          new int[] {target.fiducialId});
     }
+    return new Frame(latencySecs, targetObservation, null, null, new int[0]);
   }
 }
@@ -13,18 +13,27 @@
 
 package frc.robot.subsystems.vision;
 
-import static frc.robot.subsystems.vision.VisionConstants.aprilTagLayout;
-
+import edu.wpi.first.apriltag.AprilTagFieldLayout;
 import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Transform3d;
+import edu.wpi.first.math.util.Units;
+import frc.robot.util.SimNoise;
 import java.util.function.Supplier;
+import org.littletonrobotics.junction.Logger;
 import org.photonvision.simulation.PhotonCameraSim;
 import org.photonvision.simulation.SimCameraProperties;
 import org.photonvision.simulation.VisionSystemSim;
 
-/** IO implementation for physics sim using PhotonVision simulator. */
+/**
+ * IO implementation for physics sim using PhotonVision simulator. When sim noise is enabled, the
+ * simulated camera is mounted slightly away from the configured robot to camera transform.
+ */
 public class VisionIOPhotonVisionSim extends VisionIOPhotonVision {
+  private static final double MOUNT_TRANSLATION_STD_DEV = 0.01; // Meters
+  private static final double MOUNT_ROTATION_STD_DEV = Units.degreesToRadians(1.0);
+
   private static VisionSystemSim visionSim;
+  private static long lastUpdateTimestamp = -1;
 
   private final Supplier<Pose2d> poseSupplier;
   private final PhotonCameraSim cameraSim;
@@ -37,24 +46,35 @@ public class VisionIOPhotonVisionSim extends VisionIOPhotonVision {
    */
   public VisionIOPhotonVisionSim(
       String name, Transform3d robotToCamera, Supplier<Pose2d> poseSupplier) {
-    super(name, robotToCamera);
+    // Read results synchronously for deterministic sim
+    super(name, robotToCamera, false);
     this.poseSupplier = poseSupplier;
 
-    // Initialize vision sim
+    // Initialize vision sim, with the same layout used to validate tag IDs
+    AprilTagFieldLayout layout = AprilTagPoses.getLayout();
     if (visionSim == null) {
       visionSim = new VisionSystemSim("main");
-      visionSim.addAprilTags(aprilTagLayout);
+      visionSim.addAprilTags(layout);
     }
 
     // Add sim camera
     var cameraProperties = new SimCameraProperties();
-    cameraSim = new PhotonCameraSim(camera, cameraProperties, aprilTagLayout);
-    visionSim.addCamera(cameraSim, robotToCamera);
+    cameraSim = new PhotonCameraSim(camera, cameraProperties, layout);
+    Transform3d mountError =
+        SimNoise.gaussianTransform(MOUNT_TRANSLATION_STD_DEV, MOUNT_ROTATION_STD_DEV);
+    visionSim.addCamera(cameraSim, robotToCamera.plus(mountError));
   }
 
   @Override
   public void updateInputs(VisionIOInputs inputs) {
-    visionSim.update(poseSupplier.get());
+    // Update the shared sim once per loop, so every camera reads the same frame
+    long timestamp = Logger.getTimestamp();
+    if (timestamp != lastUpdateTimestamp) {
+      lastUpdateTimestamp = timestamp;
+      long startNanos = System.nanoTime(); // FPGA time is paused during headless sims
+      visionSim.update(poseSupplier.get());
+      Logger.recordOutput("Vision/SimUpdateMS", (System.nanoTime() - startNanos) / 1.0e6);
+    }
     super.updateInputs(inputs);
   }
 }
@@ -0,0 +1,28 @@
+// Copyright (c) 2025 FRC Team 1466
+// https://github.com/FRC1466
+
+package frc.robot.subsystems.vision;
+
+import edu.wpi.first.math.geometry.Transform3d;
+
+/**
+ * IO implementation for log replay. Inputs come from the log, but the camera position is still
+ * needed to re-run the single tag solve and pipeline throttling in Vision.
+ */
+public class VisionIOReplay implements VisionIO {
+  private final Transform3d robotToCamera;
+
+  /**
+   * Creates a new VisionIOReplay.
+   *
+   * @param robotToCamera The 3D position of the camera relative to the robot.
+   */
+  public VisionIOReplay(Transform3d robotToCamera) {
+    this.robotToCamera = robotToCamera;
+  }
+
+  @Override
+  public Transform3d getRobotToCamera() {
+    return robotToCamera;
+  }
+}
@@ -0,0 +1,92 @@
+// Copyright (c) 2025 FRC Team 1466
+// https://github.com/FRC1466
+
+package frc.robot.util;
+
+import org.littletonrobotics.junction.Logger;
+
+/**
+ * Exponentially weighted mean and variance of a stream of samples, plus the extremes since the
+ * statistics were last logged. This is the exponentially weighted form of Welford's algorithm, so
+ * memory use is constant, but old samples fade out instead of accumulating forever. A change
+ * partway through a match shows up within about one window instead of being diluted by earlier
+ * samples.
+ */
+public class DecayingStatistics {
+  private final double alpha;
+  private long count = 0;
+  private double mean = 0.0;
+  private double variance = 0.0;
+  private double periodMin = Double.POSITIVE_INFINITY;
+  private double periodMax = Double.NEGATIVE_INFINITY;
+
+  /**
+   * Creates a new DecayingStatistics.
+   *
+   * @param windowSamples The effective number of samples averaged over. Each new sample has a
+   *     weight of 1 / windowSamples.
+   */
+  public DecayingStatistics(double windowSamples) {
+    alpha = 1.0 / Math.max(1.0, windowSamples);
+  }
+
+  /** Adds a new sample. */
+  public void add(double value) {
+    count++;
+    if (count == 1) {
+      mean = value;
+      variance = 0.0;
+    } else {
+      double delta = value - mean;
+      double increment = alpha * delta;
+      mean += increment;
+      variance = (1.0 - alpha) * (variance + delta * increment);
+    }
+    periodMin = Math.min(periodMin, value);
+    periodMax = Math.max(periodMax, value);
+  }
+
+  /** Clears all samples. */
+  public void reset() {
+    count = 0;
+    mean = 0.0;
+    variance = 0.0;
+    periodMin = Double.POSITIVE_INFINITY;
+    periodMax = Double.NEGATIVE_INFINITY;
+  }
+
+  /** Returns the total number of samples added since the last reset. */
+  public long getCount() {
+    return count;
+  }
+
+  /** Returns the weighted mean of the recent samples, or zero if there are none. */
+  public double getMean() {
+    return mean;
+  }
+
+  /** Returns the weighted variance of the recent samples, or zero if there are none. */
+  public double getVariance() {
+    return variance;
+  }
+
+  /** Returns the weighted standard deviation of the recent samples. */
+  public double getStdDev() {
+    return Math.sqrt(variance);
+  }
+
+  /**
+   * Records the statistics as outputs under the specified key. The min and max cover the samples
+   * added since the last call, and are then cleared.
+   */
+  public void log(String key) {
+    boolean hasPeriodSamples = periodMin <= periodMax;
+    Logger.recordOutput(key + "/Count", count);
+    Logger.recordOutput(key + "/Mean", getMean());
+    Logger.recordOutput(key + "/StdDev", getStdDev());
+    Logger.recordOutput(key + "/Min", hasPeriodSamples ? periodMin : 0.0);
+    Logger.recordOutput(key + "/Max", hasPeriodSamples ? periodMax : 0.0);
+    periodMin = Double.POSITIVE_INFINITY;
+    periodMax = Double.NEGATIVE_INFINITY;
+  }
+}
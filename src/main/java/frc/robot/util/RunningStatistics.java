@@ -0,0 +1,76 @@
+// Copyright (c) 2025 FRC Team 1466
+// https://github.com/FRC1466
+
+package frc.robot.util;
+
+import org.littletonrobotics.junction.Logger;
+
+/**
+ * Running mean, variance, and extremes of a stream of samples. Values are accumulated with
+ * Welford's algorithm, so memory use is constant no matter how many samples are added.
+ */
+public class RunningStatistics {
+  private long count = 0;
+  private double mean = 0.0;
+  private double m2 = 0.0;
+  private double min = Double.POSITIVE_INFINITY;
+  private double max = Double.NEGATIVE_INFINITY;
+
+  /** Adds a new sample. */
+  public void add(double value) {
+    count++;
+    double delta = value - mean;
+    mean += delta / count;
+    m2 += delta * (value - mean);
+    min = Math.min(min, value);
+    max = Math.max(max, value);
+  }
+
+  /** Clears all samples. */
+  public void reset() {
+    count = 0;
+    mean = 0.0;
+    m2 = 0.0;
+    min = Double.POSITIVE_INFINITY;
+    max = Double.NEGATIVE_INFINITY;
+  }
+
+  /** Returns the number of samples added since the last reset. */
+  public long getCount() {
+    return count;
+  }
+
+  /** Returns the mean of the samples, or zero if there are none. */
+  public double getMean() {
+    return mean;
+  }
+
+  /** Returns the sample variance, or zero if there are fewer than two samples. */
+  public double getVariance() {
+    return count > 1 ? m2 / (count - 1) : 0.0;
+  }
+
+  /** Returns the sample standard deviation, or zero if there are fewer than two samples. */
+  public double getStdDev() {
+    return Math.sqrt(getVariance());
+  }
+
+  /** Returns the smallest sample, or zero if there are none. */
+  public double getMin() {
+    return count > 0 ? min : 0.0;
+  }
+
+  /** Returns the largest sample, or zero if there are none. */
+  public double getMax() {
+    return count > 0 ? max : 0.0;
+  }
+
+  /** Records the statistics as outputs under the specified key. */
+  public void log(String key) {
+    Logger.recordOutput(key + "/Count", count);
+    Logger.recordOutput(key + "/Mean", getMean());
+    Logger.recordOutput(key + "/StdDev", getStdDev());
+    Logger.recordOutput(key + "/Min", getMin());
+    Logger.recordOutput(key + "/Max", getMax());
+  }
+}
@@ -0,0 +1,53 @@
+// Copyright (c) 2025 FRC Team 1466
+// https://github.com/FRC1466
+
+package frc.robot.util;
+
+import edu.wpi.first.math.geometry.Rotation3d;
+import edu.wpi.first.math.geometry.Transform3d;
+import edu.wpi.first.math.geometry.Translation3d;
+import java.util.Random;
+
+/**
+ * Seeded noise source for simulation. Noise is enabled by setting the SIM_SEED environment
+ * variable, so that runs with the same seed are reproducible. Otherwise, all samples are zero.
+ */
+public final class SimNoise {
+  private static final long DEFAULT_SEED = 1466;
+  private static final String seed = System.getenv("SIM_SEED");
+  private static final boolean enabled = seed != null;
+  private static final Random random = new Random(enabled ? Long.parseLong(seed) : DEFAULT_SEED);
+
+  private SimNoise() {}
+
+  /** Returns whether noise is enabled. */
+  public static boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Returns a new random number generator for noise that should always be present. It is seeded
+   * from this source, using a fixed default seed if SIM_SEED is not set, so the results are always
+   * reproducible.
+   */
+  public static synchronized Random newRandom() {
+    return new Random(random.nextLong());
+  }
+
+  /** Returns a normally distributed sample with a mean of zero, or zero if noise is disabled. */
+  public static synchronized double gaussian(double stdDev) {
+    return enabled ? random.nextGaussian() * stdDev : 0.0;
+  }
+
+  /**
+   * Returns a transform with normally distributed translation and rotation on each axis, or the
+   * identity if noise is disabled.
+   */
+  public static Transform3d gaussianTransform(double translationStdDev, double rotationStdDev) {
+    return new Transform3d(
+        new Translation3d(
+            gaussian(translationStdDev), gaussian(translationStdDev), gaussian(translationStdDev)),
+        new Rotation3d(
+            gaussian(rotationStdDev), gaussian(rotationStdDev), gaussian(rotationStdDev)));
+  }
+}
@@ -0,0 +1,67 @@
+// Copyright (c) 2025 FRC Team 1466
+// https://github.com/FRC1466
+
+package frc.robot.util;
+
+/**
+ * Fixed-capacity ring buffer of timestamped samples with several channels each, backed by primitive
+ * arrays. Samples may be added from a sensor thread and drained from the main loop. When the buffer
+ * is full, the oldest sample is overwritten.
+ */
+public class TimestampedSampleBuffer {
+  private final int capacity;
+  private final double[] timestamps;
+  private final double[][] channels;
+  private int head = 0; // Index of the oldest sample
+  private int size = 0;
+
+  /**
+   * Creates a new TimestampedSampleBuffer.
+   *
+   * @param channelCount The number of values stored with each sample.
+   * @param capacity The maximum number of samples held between drains.
+   */
+  public TimestampedSampleBuffer(int channelCount, int capacity) {
+    this.capacity = capacity;
+    timestamps = new double[capacity];
+    channels = new double[channelCount][capacity];
+  }
+
+  /**
+   * Adds a sample. The values are copied, so the caller may reuse the array.
+   *
+   * @param timestamp The timestamp of the sample in seconds.
+   * @param values One value for each channel.
+   */
+  public synchronized void add(double timestamp, double[] values) {
+    int index = (head + size) % capacity;
+    timestamps[index] = timestamp;
+    for (int channel = 0; channel < channels.length; channel++) {
+      channels[channel][index] = values[channel];
+    }
+    if (size < capacity) {
+      size++;
+    } else {
+      head = (head + 1) % capacity;
+    }
+  }
+
+  /**
+   * Removes all samples, oldest first.
+   *
+   * @return The timestamps at index 0, followed by one array for each channel.
+   */
+  public synchronized double[][] drain() {
+    double[][] samples = new double[channels.length + 1][size];
+    for (int i = 0; i < size; i++) {
+      int index = (head + i) % capacity;
+      samples[0][i] = timestamps[index];
+      for (int channel = 0; channel < channels.length; channel++) {
+        samples[channel + 1][i] = channels[channel][index];
+      }
+    }
+    head = 0;
+    size = 0;
+    return samples;
+  }
+}
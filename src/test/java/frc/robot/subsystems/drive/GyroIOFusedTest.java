@@ -0,0 +1,175 @@
+// Copyright (c) 2025 FRC Team 1466
+// https://github.com/FRC1466
+
+package frc.robot.subsystems.drive;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.util.Units;
+import org.junit.jupiter.api.Test;
+
+class GyroIOFusedTest {
+  private static final double PERIOD_SECS = 0.02;
+  private static final double YAW_RATE_RAD_PER_CYCLE = 0.01;
+  private static final double SECONDARY_BIAS_RAD = 1.0;
+  private static final double TOLERANCE = 1e-6;
+
+  private final FakeGyro primary = new FakeGyro();
+  private final FakeGyro secondary = new FakeGyro();
+  private final GyroIOFused fused = new GyroIOFused(primary, secondary);
+  private final GyroIO.GyroIOInputs inputs = new GyroIO.GyroIOInputs();
+  private int cycle = 0;
+
+  /** Gyro that reports a single odometry sample per cycle. */
+  private static class FakeGyro implements GyroIO {
+    private boolean connected = true;
+    private double timestamp = 0.0;
+    private double yawRad = 0.0;
+
+    @Override
+    public void updateInputs(GyroIOInputs inputs) {
+      inputs.connected = connected;
+      inputs.yawPosition = new Rotation2d(yawRad);
+      inputs.odometryYawTimestamps = connected ? new double[] {timestamp} : new double[] {};
+      inputs.odometryYawPositions =
+          connected ? new Rotation2d[] {new Rotation2d(yawRad)} : new Rotation2d[] {};
+    }
+  }
+
+  /** Returns the true robot yaw in radians for the current cycle. */
+  private double trueYaw() {
+    return cycle * YAW_RATE_RAD_PER_CYCLE;
+  }
+
+  /** Advances one cycle with the specified raw gyro readings and updates the fused inputs. */
+  private void step(double primaryYawRad, double secondaryYawRad) {
+    primary.timestamp = cycle * PERIOD_SECS;
+    secondary.timestamp = cycle * PERIOD_SECS;
+    primary.yawRad = primaryYawRad;
+    secondary.yawRad = secondaryYawRad;
+    fused.updateInputs(inputs);
+  }
+
+  /** Runs the specified number of cycles where both gyros agree, apart from the secondary bias. */
+  private void settle(int cycles) {
+    for (int i = 0; i < cycles; i++) {
+      cycle++;
+      step(trueYaw(), trueYaw() + SECONDARY_BIAS_RAD);
+    }
+  }
+
+  private static void assertAngleEquals(double expected, double actual) {
+    assertEquals(0.0, MathUtil.angleModulus(expected - actual), TOLERANCE);
+  }
+
+  @Test
+  void fusedYawFollowsAgreeingGyros() {
+    settle(100);
+    assertAngleEquals(trueYaw(), inputs.yawPosition.getRadians());
+    assertAngleEquals(trueYaw(), inputs.odometryYawPositions[0].getRadians());
+    assertAngleEquals(SECONDARY_BIAS_RAD, inputs.secondaryBiasRad);
+    assertEquals(0.0, inputs.secondaryDriftRadPerSec, TOLERANCE);
+    assertEquals(0, inputs.rejectedSampleCount);
+  }
+
+  @Test
+  void biasTracksSlowDrift() {
+    // Secondary drifts by 0.1 deg/sec relative to the primary
+    double driftRadPerSec = Units.degreesToRadians(0.1);
+    settle(1);
+    for (int i = 0; i < 5000; i++) {
+      cycle++;
+      double drift = driftRadPerSec * cycle * PERIOD_SECS;
+      step(trueYaw(), trueYaw() + SECONDARY_BIAS_RAD + drift);
+    }
+    assertEquals(driftRadPerSec, inputs.secondaryDriftRadPerSec, driftRadPerSec * 0.05);
+    assertAngleEquals(trueYaw(), inputs.yawPosition.getRadians());
+  }
+
+  @Test
+  void disagreeingSamplesAreRejected() {
+    settle(100);
+    double outlierRad = Units.degreesToRadians(20.0);
+    for (int i = 0; i < 10; i++) {
+      cycle++;
+      step(trueYaw(), trueYaw() + SECONDARY_BIAS_RAD + outlierRad);
+      assertAngleEquals(trueYaw(), inputs.odometryYawPositions[0].getRadians());
+    }
+    assertEquals(10, inputs.rejectedSampleCount);
+    assertAngleEquals(SECONDARY_BIAS_RAD, inputs.secondaryBiasRad);
+  }
+
+  @Test
+  void persistentDisagreementReseedsBias() {
+    settle(100);
+    double offsetRad = Units.degreesToRadians(20.0);
+    for (int i = 0; i < 50; i++) {
+      cycle++;
+      step(trueYaw(), trueYaw() + SECONDARY_BIAS_RAD + offsetRad);
+    }
+    assertAngleEquals(SECONDARY_BIAS_RAD + offsetRad, inputs.secondaryBiasRad);
+
+    // The new bias is trusted from the next sample
+    cycle++;
+    step(trueYaw(), trueYaw() + SECONDARY_BIAS_RAD + offsetRad);
+    assertEquals(50, inputs.rejectedSampleCount);
+  }
+
+  @Test
+  void failsOverToSecondaryWithoutJump() {
+    settle(100);
+    primary.connected = false;
+    for (int i = 0; i < 20; i++) {
+      cycle++;
+      step(0.0, trueYaw() + SECONDARY_BIAS_RAD);
+      assertAngleEquals(trueYaw(), inputs.yawPosition.getRadians());
+      assertAngleEquals(trueYaw(), inputs.odometryYawPositions[0].getRadians());
+    }
+  }
+
+  @Test
+  void reconnectedPrimaryIsReseeded() {
+    settle(100);
+    primary.connected = false;
+    settle(20);
+
+    // The primary rebooted, so its yaw restarts at zero
+    double rebootYaw = trueYaw();
+    primary.connected = true;
+    for (int i = 0; i < 20; i++) {
+      cycle++;
+      step(trueYaw() - rebootYaw, trueYaw() + SECONDARY_BIAS_RAD);
+      assertAngleEquals(trueYaw(), inputs.yawPosition.getRadians());
+      assertAngleEquals(trueYaw(), inputs.odometryYawPositions[0].getRadians());
+    }
+  }
+
+  @Test
+  void reconnectedSecondaryIsReseeded() {
+    settle(100);
+    secondary.connected = false;
+    settle(20);
+
+    // The secondary rebooted, so its bias is now the negated yaw at reboot
+    double rebootYaw = trueYaw();
+    secondary.connected = true;
+    for (int i = 0; i < 20; i++) {
+      cycle++;
+      step(trueYaw(), trueYaw() - rebootYaw);
+      assertAngleEquals(trueYaw(), inputs.yawPosition.getRadians());
+    }
+    assertAngleEquals(-rebootYaw, inputs.secondaryBiasRad);
+    assertEquals(0, inputs.rejectedSampleCount);
+  }
+
+  @Test
+  void outputArrayIsReused() {
+    settle(1);
+    Rotation2d[] first = inputs.odometryYawPositions;
+    settle(1);
+    assertSame(first, inputs.odometryYawPositions);
+  }
+}
@@ -0,0 +1,149 @@
+// Copyright (c) 2025 FRC Team 1466
+// https://github.com/FRC1466
+
+package frc.robot.subsystems.drive;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.kinematics.SwerveModuleState;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class ModuleBankTest {
+  private static final int MODULE_COUNT = 4;
+  private static final int CASE_COUNT = 1024;
+  private static final int WARMUP_ITERATIONS = 2_000;
+  private static final int MEASURED_ITERATIONS = 2_000;
+  private static final double WHEEL_RADIUS = 0.05;
+
+  // Random setpoints and measured angles, one row of modules per case
+  private final double[][] speeds = new double[CASE_COUNT][MODULE_COUNT];
+  private final double[][] setpointAngles = new double[CASE_COUNT][MODULE_COUNT];
+  private final double[][] turnAngles = new double[CASE_COUNT][MODULE_COUNT];
+
+  ModuleBankTest() {
+    Random random = new Random(1466);
+    for (int c = 0; c < CASE_COUNT; c++) {
+      for (int i = 0; i < MODULE_COUNT; i++) {
+        speeds[c][i] = random.nextDouble() * 10.0 - 5.0;
+        setpointAngles[c][i] = random.nextDouble() * 2.0 * Math.PI - Math.PI;
+        turnAngles[c][i] = random.nextDouble() * 2.0 * Math.PI - Math.PI;
+      }
+    }
+  }
+
+  @Test
+  void optimizeMatchesSwerveModuleState() {
+    double[] bankSpeeds = new double[MODULE_COUNT];
+    double[] setpointCos = new double[MODULE_COUNT];
+    double[] setpointSin = new double[MODULE_COUNT];
+    boolean[] flipped = new boolean[MODULE_COUNT];
+    double[] turnCos = new double[MODULE_COUNT];
+    double[] turnSin = new double[MODULE_COUNT];
+    for (int c = 0; c < CASE_COUNT; c++) {
+      for (int i = 0; i < MODULE_COUNT; i++) {
+        bankSpeeds[i] = speeds[c][i];
+        setpointCos[i] = Math.cos(setpointAngles[c][i]);
+        setpointSin[i] = Math.sin(setpointAngles[c][i]);
+        turnCos[i] = Math.cos(turnAngles[c][i]);
+        turnSin[i] = Math.sin(turnAngles[c][i]);
+      }
+      ModuleBank.optimize(
+          MODULE_COUNT, bankSpeeds, setpointCos, setpointSin, flipped, turnCos, turnSin);
+
+      for (int i = 0; i < MODULE_COUNT; i++) {
+        Rotation2d turnAngle = new Rotation2d(turnAngles[c][i]);
+        SwerveModuleState state =
+            new SwerveModuleState(speeds[c][i], new Rotation2d(setpointAngles[c][i]));
+        state.optimize(turnAngle);
+        state.cosineScale(turnAngle);
+        assertEquals(state.speedMetersPerSecond, bankSpeeds[i], 1e-9);
+        assertEquals(
+            0.0,
+            MathUtil.angleModulus(
+                state.angle.getRadians() - Math.atan2(setpointSin[i], setpointCos[i])),
+            1e-9);
+      }
+    }
+  }
+
+  /**
+   * Compares the per-module object path that Drive used before ModuleBank with the bank's array
+   * kernel, and prints the cost of each. Timing uses the wall clock, so the result is only
+   * indicative, and nothing is asserted about it.
+   */
+  @Test
+  void benchmarkOptimize() {
+    // Before: one SwerveModuleState and Rotation2d per module
+    double[] sink = new double[1];
+    Runnable before =
+        () -> {
+          for (int c = 0; c < CASE_COUNT; c++) {
+            for (int i = 0; i < MODULE_COUNT; i++) {
+              Rotation2d turnAngle = new Rotation2d(turnAngles[c][i]);
+              SwerveModuleState state =
+                  new SwerveModuleState(speeds[c][i], new Rotation2d(setpointAngles[c][i]));
+              state.optimize(turnAngle);
+              state.cosineScale(turnAngle);
+              sink[0] += state.speedMetersPerSecond / WHEEL_RADIUS + state.angle.getRadians();
+            }
+          }
+        };
+
+    // After: contiguous arrays, with cosines and sines as the bank caches them
+    double[][] setpointCos = new double[CASE_COUNT][MODULE_COUNT];
+    double[][] setpointSin = new double[CASE_COUNT][MODULE_COUNT];
+    double[][] turnCos = new double[CASE_COUNT][MODULE_COUNT];
+    double[][] turnSin = new double[CASE_COUNT][MODULE_COUNT];
+    for (int c = 0; c < CASE_COUNT; c++) {
+      for (int i = 0; i < MODULE_COUNT; i++) {
+        turnCos[c][i] = Math.cos(turnAngles[c][i]);
+        turnSin[c][i] = Math.sin(turnAngles[c][i]);
+      }
+    }
+    double[] bankSpeeds = new double[MODULE_COUNT];
+    boolean[] flipped = new boolean[MODULE_COUNT];
+    Runnable after =
+        () -> {
+          for (int c = 0; c < CASE_COUNT; c++) {
+            for (int i = 0; i < MODULE_COUNT; i++) {
+              bankSpeeds[i] = speeds[c][i];
+              setpointCos[c][i] = Math.cos(setpointAngles[c][i]);
+              setpointSin[c][i] = Math.sin(setpointAngles[c][i]);
+            }
+            ModuleBank.optimize(
+                MODULE_COUNT,
+                bankSpeeds,
+                setpointCos[c],
+                setpointSin[c],
+                flipped,
+                turnCos[c],
+                turnSin[c]);
+            for (int i = 0; i < MODULE_COUNT; i++) {
+              sink[0] +=
+                  bankSpeeds[i] / WHEEL_RADIUS + Math.atan2(setpointSin[c][i], setpointCos[c][i]);
+            }
+          }
+        };
+
+    double beforeNanos = measureNanosPerCase(before);
+    double afterNanos = measureNanosPerCase(after);
+    System.out.printf(
+        "Module setpoint optimization, ns per drivetrain loop: before %.1f, after %.1f%n",
+        beforeNanos, afterNanos);
+  }
+
+  /** Returns the average wall clock time of one case (one drivetrain loop), after warming up. */
+  private static double measureNanosPerCase(Runnable action) {
+    for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+      action.run();
+    }
+    long startNanos = System.nanoTime();
+    for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+      action.run();
+    }
+    return (System.nanoTime() - startNanos) / ((double) MEASURED_ITERATIONS * CASE_COUNT);
+  }
+}
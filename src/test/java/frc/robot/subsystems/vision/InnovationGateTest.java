@@ -0,0 +1,80 @@
+// Copyright (c) 2025 FRC Team 1466
+// https://github.com/FRC1466
+
+package frc.robot.subsystems.vision;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Pose3d;
+import edu.wpi.first.math.geometry.Rotation3d;
+import java.util.Optional;
+import org.junit.jupiter.api.Test;
+
+class InnovationGateTest {
+  private static final double LINEAR_STD_DEV = 0.1;
+  private static final double ANGULAR_STD_DEV = 0.1;
+  private static final double NO_ROTATION = Double.POSITIVE_INFINITY;
+
+  // Odometry stays at the origin, with 0.1 std dev growing by 0.1 per sqrt(sec)
+  private final Optional<Pose2d> odometryPose = Optional.of(new Pose2d());
+  private final InnovationGate gate =
+      new InnovationGate(
+          (timestamp) -> odometryPose,
+          (axis, secsSinceCorrection) ->
+              Math.sqrt(0.01 + 0.01 * Math.max(0.0, secsSinceCorrection)));
+
+  private static Pose3d pose(double x, double y, double yaw) {
+    return new Pose3d(x, y, 0.0, new Rotation3d(0.0, 0.0, yaw));
+  }
+
+  @Test
+  void firstPoseIsAccepted() {
+    assertTrue(gate.test(pose(5.0, 5.0, 2.0), 1.0, LINEAR_STD_DEV, ANGULAR_STD_DEV));
+    assertEquals(1, gate.getPassedCount());
+  }
+
+  @Test
+  void consistentPoseIsAccepted() {
+    assertTrue(gate.test(pose(0.0, 0.0, 0.0), 1.0, LINEAR_STD_DEV, ANGULAR_STD_DEV));
+    assertTrue(gate.test(pose(0.1, -0.1, 0.05), 1.02, LINEAR_STD_DEV, ANGULAR_STD_DEV));
+    assertEquals(2, gate.getPassedCount());
+    assertEquals(0, gate.getRejectedCount());
+  }
+
+  @Test
+  void inconsistentPoseIsRejected() {
+    assertTrue(gate.test(pose(0.0, 0.0, 0.0), 1.0, LINEAR_STD_DEV, ANGULAR_STD_DEV));
+    assertFalse(gate.test(pose(3.0, 0.0, 0.0), 1.02, LINEAR_STD_DEV, ANGULAR_STD_DEV));
+    assertEquals(1, gate.getPassedCount());
+    assertEquals(1, gate.getRejectedCount());
+  }
+
+  @Test
+  void rotationIsOnlyCheckedWhenObserved() {
+    assertTrue(gate.test(pose(0.0, 0.0, 0.0), 1.0, LINEAR_STD_DEV, ANGULAR_STD_DEV));
+    assertFalse(gate.test(pose(0.0, 0.0, 1.0), 1.02, LINEAR_STD_DEV, ANGULAR_STD_DEV));
+    assertTrue(gate.test(pose(0.0, 0.0, 1.0), 1.04, LINEAR_STD_DEV, NO_ROTATION));
+  }
+
+  @Test
+  void rejectedPoseIsAcceptedAfterOdometryDrifts() {
+    assertTrue(gate.test(pose(0.0, 0.0, 0.0), 1.0, LINEAR_STD_DEV, ANGULAR_STD_DEV));
+    assertFalse(gate.test(pose(3.0, 0.0, 0.0), 2.0, LINEAR_STD_DEV, ANGULAR_STD_DEV));
+
+    // After long enough without a correction, odometry is uncertain enough to accept the pose
+    assertTrue(gate.test(pose(3.0, 0.0, 0.0), 1000.0, LINEAR_STD_DEV, ANGULAR_STD_DEV));
+  }
+
+  @Test
+  void resetAcceptsNextPose() {
+    assertTrue(gate.test(pose(0.0, 0.0, 0.0), 1.0, LINEAR_STD_DEV, ANGULAR_STD_DEV));
+    gate.reset();
+    assertTrue(gate.test(pose(3.0, 0.0, 0.0), 1.02, LINEAR_STD_DEV, ANGULAR_STD_DEV));
+
+    // The accepted pose restarts the gate
+    assertFalse(gate.test(pose(6.0, 0.0, 0.0), 1.04, LINEAR_STD_DEV, ANGULAR_STD_DEV));
+  }
+}
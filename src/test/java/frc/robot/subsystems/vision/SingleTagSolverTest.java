@@ -0,0 +1,104 @@
+// Copyright (c) 2025 FRC Team 1466
+// https://github.com/FRC1466
+
+package frc.robot.subsystems.vision;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Rotation3d;
+import edu.wpi.first.math.geometry.Transform3d;
+import edu.wpi.first.math.geometry.Translation3d;
+import edu.wpi.first.math.util.Units;
+import frc.robot.subsystems.vision.VisionIO.PoseObservation;
+import frc.robot.subsystems.vision.VisionIO.PoseObservationType;
+import frc.robot.subsystems.vision.VisionIO.SingleTagObservation;
+import org.junit.jupiter.api.Test;
+
+class SingleTagSolverTest {
+  private static final double TOLERANCE = 1e-9;
+  private static final double MAX_HEADING_ERROR = Units.degreesToRadians(10.0);
+  private static final double AMBIGUITY = 0.25;
+
+  // Known geometry: a robot at (3, 2) facing 0.4 rad sees a tag on the opposite wall
+  private static final double ROBOT_X = 3.0;
+  private static final double ROBOT_Y = 2.0;
+  private static final double ROBOT_YAW = 0.4;
+  private static final Transform3d robotToCamera =
+      new Transform3d(new Translation3d(0.2, 0.1, 0.5), new Rotation3d(0.0, -0.3, 0.2));
+  private static final Transform3d cameraToRobot = robotToCamera.inverse();
+  private static final Transform3d fieldToTag =
+      new Transform3d(new Translation3d(6.0, 3.0, 1.2), new Rotation3d(0.0, 0.0, Math.PI));
+  private static final Transform3d cameraToTag =
+      new Transform3d(
+              new Translation3d(ROBOT_X, ROBOT_Y, 0.0), new Rotation3d(0.0, 0.0, ROBOT_YAW))
+          .plus(robotToCamera)
+          .inverse()
+          .plus(fieldToTag);
+
+  /** Returns the true camera to tag transform with the tag turned about its vertical axis. */
+  private static Transform3d turnTag(double angle) {
+    return cameraToTag.plus(new Transform3d(new Translation3d(), new Rotation3d(0.0, 0.0, angle)));
+  }
+
+  private static PoseObservation solve(Transform3d best, Transform3d alt, Rotation2d heading) {
+    return SingleTagSolver.solve(
+        new SingleTagObservation(1.0, 7, best, alt, AMBIGUITY),
+        fieldToTag,
+        robotToCamera,
+        cameraToRobot,
+        heading,
+        MAX_HEADING_ERROR);
+  }
+
+  private static void assertTruePose(PoseObservation observation) {
+    assertEquals(ROBOT_X, observation.pose().getX(), TOLERANCE);
+    assertEquals(ROBOT_Y, observation.pose().getY(), TOLERANCE);
+    assertEquals(0.0, observation.pose().getZ(), TOLERANCE);
+    assertEquals(
+        0.0,
+        MathUtil.angleModulus(observation.pose().getRotation().getZ() - ROBOT_YAW),
+        TOLERANCE);
+    assertEquals(cameraToTag.getTranslation().getNorm(), observation.averageTagDistance(), 1e-9);
+  }
+
+  @Test
+  void headingPicksTheAgreeingSolution() {
+    Rotation2d heading = new Rotation2d(ROBOT_YAW);
+    for (PoseObservation observation :
+        new PoseObservation[] {
+          solve(cameraToTag, turnTag(0.7), heading), solve(turnTag(0.7), cameraToTag, heading)
+        }) {
+      assertTruePose(observation);
+      assertEquals(PoseObservationType.MEGATAG_2, observation.type());
+      assertEquals(0.0, observation.ambiguity());
+    }
+  }
+
+  @Test
+  void translationIgnoresTagOrientationError() {
+    // Both solutions are close to the heading, so the ambiguity still applies
+    PoseObservation observation = solve(turnTag(0.05), turnTag(-0.05), new Rotation2d(ROBOT_YAW));
+    assertTruePose(observation);
+    assertEquals(PoseObservationType.MEGATAG_2, observation.type());
+    assertEquals(AMBIGUITY, observation.ambiguity());
+  }
+
+  @Test
+  void withoutHeadingUsesFullSolution() {
+    PoseObservation observation = solve(cameraToTag, turnTag(0.7), null);
+    assertTruePose(observation);
+    assertEquals(PoseObservationType.PHOTONVISION, observation.type());
+    assertEquals(AMBIGUITY, observation.ambiguity());
+  }
+
+  @Test
+  void headingDisagreeingWithBothSolutionsFallsBack() {
+    PoseObservation observation =
+        solve(cameraToTag, turnTag(0.7), new Rotation2d(ROBOT_YAW + 1.5));
+    assertTruePose(observation);
+    assertEquals(PoseObservationType.PHOTONVISION, observation.type());
+    assertEquals(AMBIGUITY, observation.ambiguity());
+  }
+}
@@ -0,0 +1,94 @@
+// Copyright (c) 2025 FRC Team 1466
+// https://github.com/FRC1466
+
+package frc.robot.subsystems.vision;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Pose3d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Rotation3d;
+import edu.wpi.first.math.geometry.Transform3d;
+import edu.wpi.first.math.geometry.Translation3d;
+import edu.wpi.first.math.util.Units;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class TagVisibilityTest {
+  private static final double HORIZONTAL_FOV = Units.degreesToRadians(70.0);
+  private static final double VERTICAL_FOV = Units.degreesToRadians(50.0);
+  private static final double MAX_RANGE = 6.0;
+  private static final double MAX_VIEW_ANGLE = Units.degreesToRadians(70.0);
+
+  /** The original geometry-object implementation of the visibility check. */
+  private static boolean isVisibleReference(Pose3d cameraPose, Pose3d tagPose) {
+    Translation3d cameraToTag = tagPose.relativeTo(cameraPose).getTranslation();
+    double distance = cameraToTag.getNorm();
+    if (distance > MAX_RANGE || cameraToTag.getX() <= 0.0) {
+      return false;
+    }
+    double yaw = Math.atan2(cameraToTag.getY(), cameraToTag.getX());
+    double pitch =
+        Math.atan2(cameraToTag.getZ(), Math.hypot(cameraToTag.getX(), cameraToTag.getY()));
+    if (Math.abs(yaw) > HORIZONTAL_FOV / 2.0 || Math.abs(pitch) > VERTICAL_FOV / 2.0) {
+      return false;
+    }
+    Translation3d tagNormal = new Translation3d(1.0, 0.0, 0.0).rotateBy(tagPose.getRotation());
+    Translation3d tagToCamera = cameraPose.getTranslation().minus(tagPose.getTranslation());
+    double facing =
+        tagNormal.getX() * tagToCamera.getX()
+            + tagNormal.getY() * tagToCamera.getY()
+            + tagNormal.getZ() * tagToCamera.getZ();
+    return facing >= Math.cos(MAX_VIEW_ANGLE) * distance;
+  }
+
+  @Test
+  void cameraFrameMatchesGeometryObjects() {
+    Random random = new Random(1466);
+    Transform3d robotToCamera =
+        new Transform3d(
+            new Translation3d(0.2, -0.1, 0.5),
+            new Rotation3d(0.0, Units.degreesToRadians(-20.0), Units.degreesToRadians(30.0)));
+    TagVisibility.CameraFrame frame = new TagVisibility.CameraFrame();
+    int visibleCount = 0;
+    for (int i = 0; i < 10_000; i++) {
+      Pose2d robotPose =
+          new Pose2d(
+              random.nextDouble() * 8.0,
+              random.nextDouble() * 8.0,
+              new Rotation2d(random.nextDouble() * 2.0 * Math.PI));
+      Pose3d tagPose =
+          new Pose3d(
+              random.nextDouble() * 8.0,
+              random.nextDouble() * 8.0,
+              random.nextDouble() * 2.0,
+              new Rotation3d(0.0, random.nextDouble() - 0.5, random.nextDouble() * 2.0 * Math.PI));
+      Pose3d cameraPose = new Pose3d(robotPose).transformBy(robotToCamera);
+      boolean expected = isVisibleReference(cameraPose, tagPose);
+
+      // Both ways of building a frame give the same result
+      assertEquals(
+          expected,
+          TagVisibility.isVisible(
+              frame.set(robotPose, robotToCamera),
+              tagPose,
+              HORIZONTAL_FOV,
+              VERTICAL_FOV,
+              MAX_RANGE,
+              MAX_VIEW_ANGLE));
+      assertEquals(
+          expected,
+          TagVisibility.isVisible(
+              cameraPose, tagPose, HORIZONTAL_FOV, VERTICAL_FOV, MAX_RANGE, MAX_VIEW_ANGLE));
+      if (expected) {
+        visibleCount++;
+      }
+    }
+
+    // Make sure both outcomes were covered
+    assertTrue(visibleCount > 10, "Only " + visibleCount + " tags were visible");
+    assertTrue(visibleCount < 9_990, visibleCount + " tags were visible");
+  }
+}
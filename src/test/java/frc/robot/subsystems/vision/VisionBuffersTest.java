@@ -0,0 +1,216 @@
+// Copyright (c) 2025 FRC Team 1466
+// https://github.com/FRC1466
+
+package frc.robot.subsystems.vision;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.wpi.first.apriltag.AprilTag;
+import edu.wpi.first.apriltag.AprilTagFieldLayout;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Pose3d;
+import edu.wpi.first.math.geometry.Rotation3d;
+import frc.robot.subsystems.vision.Vision.PoseSampler;
+import frc.robot.subsystems.vision.Vision.VisionConsumer;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.Test;
+
+class VisionBuffersTest {
+  private static final int WARMUP_ITERATIONS = 20_000;
+  private static final int MEASURED_ITERATIONS = 1_000;
+  private static final long MAX_POSE2D_BYTES = 128;
+
+  private static final com.sun.management.ThreadMXBean threadBean =
+      (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+  /** Returns the total number of bytes allocated by the current thread. */
+  private static long allocatedBytes() {
+    return threadBean.getCurrentThreadAllocatedBytes();
+  }
+
+  /** Returns the number of bytes allocated while running an action, after warming it up. */
+  private static long measureAllocatedBytes(Runnable action) {
+    for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+      action.run();
+    }
+    allocatedBytes(); // Initialize before measuring
+    long start = allocatedBytes();
+    for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+      action.run();
+    }
+    return allocatedBytes() - start;
+  }
+
+  @Test
+  void pose3dBufferReturnsExactlySizedArrays() {
+    Pose3d first = new Pose3d(1.0, 2.0, 0.0, new Rotation3d());
+    Pose3d second = new Pose3d(3.0, 4.0, 0.0, new Rotation3d());
+    Pose3dBuffer buffer = new Pose3dBuffer();
+    buffer.add(first);
+    buffer.add(second);
+    assertArrayEquals(new Pose3d[] {first, second}, buffer.toArray());
+
+    buffer.clear();
+    assertEquals(0, buffer.toArray().length);
+  }
+
+  @Test
+  void pose3dBuffersDoNotShareArrays() {
+    Pose3dBuffer a = new Pose3dBuffer();
+    Pose3dBuffer b = new Pose3dBuffer();
+    a.add(new Pose3d());
+    b.add(new Pose3d());
+    assertNotSame(a.toArray(), b.toArray());
+  }
+
+  @Test
+  void pose3dBufferDoesNotAllocate() {
+    Pose3d pose = new Pose3d();
+    Pose3dBuffer buffer = new Pose3dBuffer();
+    Pose3dBuffer total = new Pose3dBuffer();
+    long bytes =
+        measureAllocatedBytes(
+            () -> {
+              total.clear();
+              for (int size = 0; size < 12; size++) {
+                buffer.clear();
+                for (int i = 0; i < size; i++) {
+                  buffer.add(pose);
+                }
+                buffer.toArray();
+                total.addAll(buffer);
+              }
+              total.toArray();
+            });
+    assertEquals(0, bytes);
+  }
+
+  @Test
+  void tagIdBufferSkipsDuplicatesAndInvalidIds() {
+    TagIdBuffer buffer = new TagIdBuffer();
+    buffer.add(7);
+    buffer.add(3);
+    buffer.add(7);
+    buffer.add(-1);
+    buffer.add(AprilTagPoses.getIdLimit());
+    buffer.add(Integer.MAX_VALUE);
+    assertArrayEquals(new int[] {7, 3}, buffer.toArray());
+
+    buffer.clear();
+    buffer.add(3);
+    assertArrayEquals(new int[] {3}, buffer.toArray());
+  }
+
+  @Test
+  void tagIdBufferRejectsInvalidDecodedIds() {
+    assertTrue(TagIdBuffer.isValidId(7.0));
+    assertFalse(TagIdBuffer.isValidId(7.5));
+    assertFalse(TagIdBuffer.isValidId(-1.0));
+    assertFalse(TagIdBuffer.isValidId(AprilTagPoses.getIdLimit()));
+    assertFalse(TagIdBuffer.isValidId(Integer.MAX_VALUE + 1.0));
+    assertFalse(TagIdBuffer.isValidId(Double.NaN));
+    assertFalse(TagIdBuffer.isValidId(Double.POSITIVE_INFINITY));
+  }
+
+  @Test
+  void tagIdsOutsideLayoutAreRejected() {
+    // A layout with unused IDs below its largest ID
+    AprilTagFieldLayout originalLayout = VisionConstants.aprilTagLayout;
+    VisionConstants.aprilTagLayout =
+        new AprilTagFieldLayout(
+            List.of(
+                new AprilTag(1, new Pose3d(1.0, 1.0, 1.0, new Rotation3d())),
+                new AprilTag(2, new Pose3d(2.0, 1.0, 1.0, new Rotation3d())),
+                new AprilTag(5, new Pose3d(5.0, 1.0, 1.0, new Rotation3d()))),
+            8.0,
+            4.0);
+    try {
+      assertSame(VisionConstants.aprilTagLayout, AprilTagPoses.getLayout());
+      assertEquals(6, AprilTagPoses.getIdLimit());
+      assertTrue(TagIdBuffer.isValidId(5.0));
+      assertFalse(TagIdBuffer.isValidId(3.0));
+      assertFalse(TagIdBuffer.isValidId(0.0));
+      assertFalse(TagIdBuffer.isValidId(6.0));
+
+      TagIdBuffer buffer = new TagIdBuffer();
+      for (int id = -1; id <= 7; id++) {
+        buffer.add(id);
+      }
+      assertArrayEquals(new int[] {1, 2, 5}, buffer.toArray());
+    } finally {
+      VisionConstants.aprilTagLayout = originalLayout;
+    }
+    assertSame(originalLayout, AprilTagPoses.getLayout());
+  }
+
+  @Test
+  void tagIdBufferDoesNotAllocate() {
+    TagIdBuffer buffer = new TagIdBuffer();
+    long bytes =
+        measureAllocatedBytes(
+            () -> {
+              buffer.clear();
+              for (int id = 1; id <= 16; id++) {
+                buffer.add(id);
+                buffer.add(id);
+              }
+            });
+    assertEquals(0, bytes);
+  }
+
+  @Test
+  void fuserCombinesCamerasWithInverseVarianceWeighting() {
+    double[] result = new double[6];
+    VisionConsumer consumer =
+        (pose, timestamp, stdDevs) -> {
+          result[0] = pose.getX();
+          result[1] = pose.getY();
+          result[2] = pose.getRotation().getRadians();
+          result[3] = timestamp;
+          result[4] = stdDevs.get(0, 0);
+          result[5] = stdDevs.get(2, 0);
+        };
+    Optional<Pose2d> odometryPose = Optional.of(new Pose2d());
+    PoseSampler poseSampler = (timestamp) -> odometryPose;
+
+    VisionFuser fuser = new VisionFuser();
+    fuser.add(0, 1.0, 2.0, 0.1, 5.0, 1.0, 1.0);
+    fuser.add(1, 3.0, 4.0, 0.3, 5.0, 1.0, 1.0);
+    assertEquals(1, fuser.fuse(0.02, poseSampler, consumer));
+    assertEquals(2.0, result[0], 1e-9);
+    assertEquals(3.0, result[1], 1e-9);
+    assertEquals(0.2, result[2], 1e-9);
+    assertEquals(5.0, result[3], 1e-9);
+    assertEquals(Math.sqrt(0.5), result[4], 1e-9);
+    assertEquals(Math.sqrt(0.5), result[5], 1e-9);
+  }
+
+  @Test
+  void fuserOnlyAllocatesSentPoses() {
+    double[] sum = new double[1];
+    VisionConsumer consumer =
+        (pose, timestamp, stdDevs) -> sum[0] += pose.getX() + stdDevs.get(0, 0);
+    Optional<Pose2d> odometryPose = Optional.of(new Pose2d());
+    PoseSampler poseSampler = (timestamp) -> odometryPose;
+    VisionFuser fuser = new VisionFuser();
+    long bytes =
+        measureAllocatedBytes(
+            () -> {
+              fuser.clear();
+              fuser.add(0, 1.0, 2.0, 0.1, 5.0, 0.5, 1.0);
+              fuser.add(1, 1.1, 2.1, 0.2, 5.01, 0.5, 1.0);
+              fuser.add(0, 1.2, 2.2, 0.3, 5.1, 0.5, Double.POSITIVE_INFINITY);
+              assertEquals(2, fuser.fuse(0.02, poseSampler, consumer));
+            });
+    // Each sent Pose2d holds a Translation2d and a Rotation2d
+    assertTrue(
+        bytes <= MEASURED_ITERATIONS * 2 * MAX_POSE2D_BYTES, "Allocated " + bytes + " bytes");
+  }
+}
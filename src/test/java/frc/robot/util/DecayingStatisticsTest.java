@@ -0,0 +1,47 @@
+// Copyright (c) 2025 FRC Team 1466
+// https://github.com/FRC1466
+
+package frc.robot.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class DecayingStatisticsTest {
+  @Test
+  void constantSamplesHaveNoVariance() {
+    DecayingStatistics statistics = new DecayingStatistics(10.0);
+    for (int i = 0; i < 100; i++) {
+      statistics.add(3.0);
+    }
+    assertEquals(100, statistics.getCount());
+    assertEquals(3.0, statistics.getMean(), 1e-12);
+    assertEquals(0.0, statistics.getVariance(), 1e-12);
+  }
+
+  @Test
+  void stepChangeIsNotDilutedByOldSamples() {
+    // A long healthy history followed by one window of failure
+    DecayingStatistics statistics = new DecayingStatistics(50.0);
+    for (int i = 0; i < 10_000; i++) {
+      statistics.add(0.0);
+    }
+    for (int i = 0; i < 200; i++) {
+      statistics.add(10.0);
+    }
+    // After four windows, the mean is within 5% of the new level
+    assertTrue(statistics.getMean() > 9.5, "Mean was " + statistics.getMean());
+  }
+
+  @Test
+  void varianceMatchesAlternatingSamples() {
+    // Samples alternating between -1 and 1 have a variance of about 1
+    DecayingStatistics statistics = new DecayingStatistics(1000.0);
+    for (int i = 0; i < 20_000; i++) {
+      statistics.add(i % 2 == 0 ? -1.0 : 1.0);
+    }
+    assertEquals(0.0, statistics.getMean(), 0.01);
+    assertEquals(1.0, statistics.getVariance(), 0.01);
+  }
+}